@@ -1,5 +1,11 @@
 package eu.netward.agent;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,6 +19,7 @@ public class App {
 
     private static final Logger logger = LoggerFactory.getLogger(App.class);
     public static HikariDataSource dataSource;
+    public static BlockingExecutor blockingExecutor;
 
     public static void main(String[] args) {
         long startTime = System.currentTimeMillis();
@@ -23,7 +30,7 @@ public class App {
         config.setPassword(System.getenv().getOrDefault("MYSQL_PASSWORD", "password"));
         
         // Optional tuning
-        config.setMaximumPoolSize(10);
+        config.setMaximumPoolSize(Integer.parseInt(System.getenv().getOrDefault("MYSQL_POOL_SIZE", "10")));
         config.setMinimumIdle(2);
         config.setConnectionTimeout(10000);
         config.setIdleTimeout(60000);
@@ -36,14 +43,32 @@ public class App {
 
         logger.info("✓ Database connection pool initialized in {} ms.", (System.currentTimeMillis() - startTime));
 
-        while(true) {
-            try {
-                Thread.sleep(60000);
-            } catch (InterruptedException e) {
-                logger.error("Main thread interrupted: {}", e.getMessage());
-            }
+        // Periodic jobs run on virtual threads, limited to the pool size
+        blockingExecutor = new BlockingExecutor("netward-agent", config.getMaximumPoolSize());
+
+        long healthInterval = Long.parseLong(System.getenv().getOrDefault("AGENT_HEALTH_INTERVAL", "60"));
+        blockingExecutor.schedule("database-health", healthInterval, healthInterval, TimeUnit.SECONDS, App::checkDatabase);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            blockingExecutor.shutdown();
+            dataSource.close();
+        }));
+
+        // The scheduler thread keeps the agent alive
+        logger.info("⚡ NetWard Agent started in {} ms.", (System.currentTimeMillis() - startTime));
+    }
+
+    private static Void checkDatabase() throws SQLException {
+        try (Connection sql = dataSource.getConnection();
+             PreparedStatement ps = sql.prepareStatement("SELECT 1");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
         }
 
+        var pool = dataSource.getHikariPoolMXBean();
+        logger.debug("Database pool - Active: {}, Idle: {}, Waiting: {}",
+            pool.getActiveConnections(), pool.getIdleConnections(), pool.getThreadsAwaitingConnection());
+        return null;
     }
 
 }
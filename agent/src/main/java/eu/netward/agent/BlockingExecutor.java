@@ -0,0 +1,77 @@
+package eu.netward.agent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs blocking agent jobs (JDBC, certificate and health checks) on virtual threads.
+ * A single platform thread only keeps time; each run is handed to a fresh virtual
+ * thread and concurrency is capped to the database pool size.
+ */
+public class BlockingExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockingExecutor.class);
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private final Semaphore permits;
+
+    public BlockingExecutor(String name, int maxConcurrency) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name(name + "-scheduler").factory());
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    /**
+     * Schedule a periodic job. A run is skipped while the previous one is still going.
+     */
+    public void schedule(String jobName, long initialDelay, long period, TimeUnit unit, Callable<?> job) {
+        AtomicBoolean running = new AtomicBoolean();
+
+        scheduler.scheduleAtFixedRate(() -> {
+            if (!running.compareAndSet(false, true)) {
+                logger.warn("Job {} still running, skipping this run", jobName);
+                return;
+            }
+
+            executor.execute(() -> {
+                long startTime = System.currentTimeMillis();
+                try {
+                    call(job);
+                    logger.debug("Job {} finished in {} ms", jobName, System.currentTimeMillis() - startTime);
+                } catch (Exception e) {
+                    logger.error("Job {} failed: {}", jobName, e.getMessage(), e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        }, initialDelay, period, unit);
+
+        logger.info("✓ Scheduled job {} every {} {}", jobName, period, unit.name().toLowerCase());
+    }
+
+    /**
+     * Run a blocking task on the current thread within the concurrency limit.
+     */
+    private <T> T call(Callable<T> task) throws Exception {
+        permits.acquire();
+        try {
+            return task.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+        executor.shutdown();
+    }
+}
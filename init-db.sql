@@ -119,8 +119,15 @@ CREATE TABLE IF NOT EXISTS `proxy_zones` (
   `domain_id` int(11) NOT NULL,
   `record` varchar(253) NOT NULL,
   `target` varchar(46) NOT NULL,
+  `image_optimization` tinyint(4) NOT NULL DEFAULT 0,
+  `negative_ttl` int(11) DEFAULT NULL,
+  `redirect_ttl` int(11) DEFAULT NULL,
   PRIMARY KEY (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+ALTER TABLE `proxy_zones` ADD COLUMN IF NOT EXISTS `image_optimization` tinyint(4) NOT NULL DEFAULT 0;
+ALTER TABLE `proxy_zones` ADD COLUMN IF NOT EXISTS `negative_ttl` int(11) DEFAULT NULL;
+ALTER TABLE `proxy_zones` ADD COLUMN IF NOT EXISTS `redirect_ttl` int(11) DEFAULT NULL;
 COMMIT;
 
 -- Create PowerDNS Admin and application databases
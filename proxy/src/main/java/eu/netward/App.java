@@ -1,14 +1,20 @@
 package eu.netward;
 
+import java.util.function.Supplier;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
+import eu.netward.http.AdminVerticle;
 import eu.netward.http.HttpVerticle;
+import eu.netward.http.NetworkTuning;
 import eu.netward.proxy.ProxyHandler;
+import eu.netward.util.BlockingExecutor;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Vertx;
 
 /**
@@ -18,6 +24,7 @@ public class App extends AbstractVerticle {
 
     private static final Logger logger = LoggerFactory.getLogger(App.class);
     public static HikariDataSource dataSource;
+    public static BlockingExecutor blockingExecutor;
 
     public static void main(String[] args) {
         long startTime = System.currentTimeMillis();
@@ -28,7 +35,7 @@ public class App extends AbstractVerticle {
         config.setPassword(System.getenv().getOrDefault("MYSQL_PASSWORD", "password"));
         
         // Optional tuning
-        config.setMaximumPoolSize(10);
+        config.setMaximumPoolSize(Integer.parseInt(System.getenv().getOrDefault("MYSQL_POOL_SIZE", "10")));
         config.setMinimumIdle(2);
         config.setConnectionTimeout(10000);
         config.setIdleTimeout(60000);
@@ -41,17 +48,31 @@ public class App extends AbstractVerticle {
 
         logger.info("✓ Database connection pool initialized in {} ms.", (System.currentTimeMillis() - startTime));
 
-        Vertx vertx = Vertx.vertx();
+        // Blocking JDBC work runs on virtual threads, limited to the pool size
+        blockingExecutor = new BlockingExecutor("netward-blocking", config.getMaximumPoolSize());
+
+        NetworkTuning networkTuning = NetworkTuning.fromEnv();
+        Vertx vertx = Vertx.vertx(networkTuning.vertxOptions());
+        logger.info("✓ Native transport enabled: {}", vertx.isNativeTransportEnabled());
 
-        ProxyHandler proxyHandler = new ProxyHandler();
+        ProxyHandler proxyHandler = new ProxyHandler(vertx);
        
+        // One verticle per acceptor; Vert.x binds the port once and spreads accepted connections across them
+        Supplier<HttpVerticle> verticles = () -> new HttpVerticle(proxyHandler, networkTuning, 8080);
 
-        vertx.deployVerticle(new HttpVerticle(proxyHandler, 8080))
-                .onSuccess(id -> logger.info("✓ Verticle deployed successfully: ID: {}", id))
+        vertx.deployVerticle(verticles, new DeploymentOptions().setInstances(networkTuning.getAcceptors()))
+                .onSuccess(id -> logger.info("✓ Verticle deployed successfully: ID: {} ({} instances)", id, networkTuning.getAcceptors()))
                 .onFailure(err -> {
                     logger.error("✗ Failed to deploy verticle: {}", err.getMessage(), err);
                 });
 
+        // Internal status (flood guard top-K), loopback only by default
+        int adminPort = Integer.parseInt(System.getenv().getOrDefault("NETWARD_ADMIN_PORT", "8081"));
+        if (adminPort > 0) {
+            String adminHost = System.getenv().getOrDefault("NETWARD_ADMIN_HOST", "127.0.0.1");
+            vertx.deployVerticle(new AdminVerticle(proxyHandler.getFloodGuard(), adminHost, adminPort));
+        }
+
         long endTime = System.currentTimeMillis();
         logger.info("⚡ NetWard Proxy started in {} ms.", (endTime - startTime));
     }
@@ -1,22 +1,30 @@
 package eu.netward.cache;
 
-import io.vertx.core.MultiMap;
 import io.vertx.core.buffer.Buffer;
 
 public class CacheEntry {
     
     private final int statusCode;
-    private final MultiMap headers;
+    private final CachedHeaders headers;
     private final Buffer body;
+    private final int bodyLength;
     private final long cacheTime;
     private final long ttlSeconds;
     private final String etag;
     
-    public CacheEntry(int statusCode, MultiMap headers, Buffer body, long ttlSeconds) {
+    public CacheEntry(int statusCode, CachedHeaders headers, Buffer body, long ttlSeconds) {
+        this(statusCode, headers, body, body.length(), ttlSeconds, System.currentTimeMillis());
+    }
+    
+    /**
+     * Entry with an explicit body length and cache time, used when replaying traces without bodies.
+     */
+    public CacheEntry(int statusCode, CachedHeaders headers, Buffer body, int bodyLength, long ttlSeconds, long cacheTime) {
         this.statusCode = statusCode;
         this.headers = headers;
         this.body = body;
-        this.cacheTime = System.currentTimeMillis();
+        this.bodyLength = bodyLength;
+        this.cacheTime = cacheTime;
         this.ttlSeconds = ttlSeconds;
         this.etag = headers.get("ETag");
     }
@@ -25,7 +33,7 @@ public class CacheEntry {
         return statusCode;
     }
     
-    public MultiMap getHeaders() {
+    public CachedHeaders getHeaders() {
         return headers;
     }
     
@@ -33,6 +41,10 @@ public class CacheEntry {
         return body;
     }
     
+    public int getBodyLength() {
+        return bodyLength;
+    }
+    
     public long getCacheTime() {
         return cacheTime;
     }
@@ -46,7 +58,11 @@ public class CacheEntry {
     }
     
     public boolean isStale() {
-        return System.currentTimeMillis() - cacheTime > (ttlSeconds * 1000);
+        return isStale(System.currentTimeMillis());
+    }
+    
+    public boolean isStale(long now) {
+        return now - cacheTime > (ttlSeconds * 1000);
     }
     
     public long getAgeSeconds() {
@@ -54,7 +70,8 @@ public class CacheEntry {
     }
     
     public int getWeight() {
-        // Calculate weight for cache eviction (body size + header overhead)
-        return body.length() + 1024;
+        // Calculate weight for cache eviction (body size + header block + entry overhead),
+        // so small negative and redirect entries stay cheap
+        return bodyLength + headers.getByteSize() + 128;
     }
 }
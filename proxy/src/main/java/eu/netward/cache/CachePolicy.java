@@ -1,5 +1,7 @@
 package eu.netward.cache;
 
+import eu.netward.model.NetwardZone;
+import io.vertx.core.MultiMap;
 import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpClientResponse;
 
@@ -10,6 +12,7 @@ import java.util.regex.Pattern;
 public class CachePolicy {
     
     private static final Pattern CACHE_CONTROL_MAX_AGE = Pattern.compile("max-age=(\\d+)");
+    private static final Pattern CACHE_CONTROL_S_MAXAGE = Pattern.compile("s-maxage=(\\d+)");
     
     private static final Set<String> CACHEABLE_CONTENT_TYPES = Set.of(
         "text/css", 
@@ -50,26 +53,48 @@ public class CachePolicy {
     
     private final long maxTtlSeconds;
     private final long maxCacheableSizeBytes;
+    private final long negativeTtlSeconds;
+    private final long redirectTtlSeconds;
     
     public CachePolicy(long maxTtlSeconds, long maxCacheableSizeBytes) {
+        this(maxTtlSeconds, maxCacheableSizeBytes, 0, 0);
+    }
+    
+    /**
+     * @param negativeTtlSeconds TTL for 404/410 responses, 0 disables negative caching
+     * @param redirectTtlSeconds TTL for 301/308 responses without max-age, 0 disables redirect caching
+     */
+    public CachePolicy(long maxTtlSeconds, long maxCacheableSizeBytes, long negativeTtlSeconds, long redirectTtlSeconds) {
         this.maxTtlSeconds = maxTtlSeconds;
         this.maxCacheableSizeBytes = maxCacheableSizeBytes;
+        this.negativeTtlSeconds = negativeTtlSeconds;
+        this.redirectTtlSeconds = redirectTtlSeconds;
     }
     
     public boolean isCacheable(HttpServerRequest request, HttpClientResponse response) {
+        return isCacheable(request, response, null);
+    }
+    
+    public boolean isCacheable(HttpServerRequest request, HttpClientResponse response, NetwardZone zone) {
+        return isCacheable(request.method().name(), request.uri(), response.statusCode(), response.headers(), zone);
+    }
+    
+    /**
+     * Decide cacheability from plain request/response data, zone overrides apply when given.
+     */
+    public boolean isCacheable(String method, String uri, int statusCode, MultiMap headers, NetwardZone zone) {
         // Only cache GET and HEAD requests
-        String method = request.method().name();
         if (!"GET".equals(method) && !"HEAD".equals(method)) {
             return false;
         }
         
-        // Only cache successful responses
-        if (response.statusCode() != 200) {
+        // Only cache successful responses, redirects and negative responses
+        if (statusCode != 200 && !isRedirect(statusCode) && !isNegative(statusCode)) {
             return false;
         }
         
         // Check Cache-Control from origin
-        String cacheControl = response.getHeader("Cache-Control");
+        String cacheControl = headers.get("Cache-Control");
         if (cacheControl != null) {
             if (cacheControl.contains("no-cache") || 
                 cacheControl.contains("no-store") || 
@@ -79,7 +104,7 @@ public class CachePolicy {
         }
         
         // Check if content length exceeds max cacheable size
-        String contentLength = response.getHeader("Content-Length");
+        String contentLength = headers.get("Content-Length");
         if (contentLength != null) {
             try {
                 long size = Long.parseLong(contentLength);
@@ -91,8 +116,30 @@ public class CachePolicy {
             }
         }
         
+        // An explicit zero lifetime would only store an entry that is already stale
+        Long maxAge = parseMaxAge(cacheControl);
+        if (maxAge != null && maxAge <= 0) {
+            return false;
+        }
+        
+        // Negative entries are cached for any path, that is where scanners hit
+        if (isNegative(statusCode)) {
+            return effectiveNegativeTtl(zone) > 0;
+        }
+        
+        if (isRedirect(statusCode)) {
+            if (headers.get("Location") == null) {
+                return false;
+            }
+            // Temporary redirects only when the origin explicitly allows it
+            if (statusCode == 302 || statusCode == 307) {
+                return maxAge != null;
+            }
+            return maxAge != null || effectiveRedirectTtl(zone) > 0;
+        }
+        
         // Check content type
-        String contentType = response.getHeader("Content-Type");
+        String contentType = headers.get("Content-Type");
         if (contentType != null) {
             for (String cacheableType : CACHEABLE_CONTENT_TYPES) {
                 if (contentType.toLowerCase().startsWith(cacheableType)) {
@@ -102,7 +149,6 @@ public class CachePolicy {
         }
         
         // Check file extension
-        String uri = request.uri();
         int queryIndex = uri.indexOf('?');
         if (queryIndex != -1) {
             uri = uri.substring(0, queryIndex);
@@ -134,22 +180,33 @@ public class CachePolicy {
     }
     
     public long calculateTTL(HttpClientResponse response) {
+        return calculateTTL(response, null);
+    }
+    
+    public long calculateTTL(HttpClientResponse response, NetwardZone zone) {
+        return calculateTTL(response.statusCode(), response.headers(), zone);
+    }
+    
+    public long calculateTTL(int statusCode, MultiMap headers, NetwardZone zone) {
         // Check Cache-Control max-age
-        String cacheControl = response.getHeader("Cache-Control");
-        if (cacheControl != null) {
-            Matcher matcher = CACHE_CONTROL_MAX_AGE.matcher(cacheControl);
-            if (matcher.find()) {
-                try {
-                    long maxAge = Long.parseLong(matcher.group(1));
-                    return Math.min(maxAge, maxTtlSeconds);
-                } catch (NumberFormatException e) {
-                    // Ignore and fall through to defaults
-                }
-            }
+        Long maxAge = parseMaxAge(headers.get("Cache-Control"));
+        
+        // Negative entries stay short-lived even if the origin allows more
+        if (isNegative(statusCode)) {
+            long negativeTtl = effectiveNegativeTtl(zone);
+            return Math.min(maxAge != null ? Math.min(maxAge, negativeTtl) : negativeTtl, maxTtlSeconds);
+        }
+        
+        if (maxAge != null) {
+            return Math.min(maxAge, maxTtlSeconds);
+        }
+        
+        if (isRedirect(statusCode)) {
+            return Math.min(effectiveRedirectTtl(zone), maxTtlSeconds);
         }
         
         // Default TTL based on content type
-        String contentType = response.getHeader("Content-Type");
+        String contentType = headers.get("Content-Type");
         if (contentType != null) {
             if (contentType.startsWith("image/") || contentType.startsWith("font/") || contentType.startsWith("video/")) {
                 return Math.min(7200, maxTtlSeconds); // 2 hours for media
@@ -162,6 +219,45 @@ public class CachePolicy {
         return Math.min(1800, maxTtlSeconds); // 30 minutes default
     }
     
+    public static boolean isNegative(int statusCode) {
+        return statusCode == 404 || statusCode == 410;
+    }
+    
+    public static boolean isRedirect(int statusCode) {
+        return statusCode == 301 || statusCode == 302 || statusCode == 307 || statusCode == 308;
+    }
+    
+    private long effectiveNegativeTtl(NetwardZone zone) {
+        return zone != null && zone.getNegativeTtl() != null ? zone.getNegativeTtl() : negativeTtlSeconds;
+    }
+    
+    private long effectiveRedirectTtl(NetwardZone zone) {
+        return zone != null && zone.getRedirectTtl() != null ? zone.getRedirectTtl() : redirectTtlSeconds;
+    }
+    
+    /**
+     * Freshness lifetime from Cache-Control, s-maxage wins over max-age for a shared cache.
+     */
+    private static Long parseMaxAge(String cacheControl) {
+        if (cacheControl == null) {
+            return null;
+        }
+        
+        Matcher matcher = CACHE_CONTROL_S_MAXAGE.matcher(cacheControl);
+        if (!matcher.find()) {
+            matcher = CACHE_CONTROL_MAX_AGE.matcher(cacheControl);
+            if (!matcher.find()) {
+                return null;
+            }
+        }
+        
+        try {
+            return Long.parseLong(matcher.group(1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
     public String buildCacheKey(String host, String uri) {
         // Normalize the URI (remove fragment)
         int fragmentIndex = uri.indexOf('#');
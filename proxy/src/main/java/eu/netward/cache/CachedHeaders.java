@@ -0,0 +1,118 @@
+package eu.netward.cache;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.HttpHeaders;
+
+/**
+ * Immutable, pre-encoded header block stored with a cache entry.
+ * Names and values are kept as ASCII strings so cache hits append them
+ * to the response without re-encoding or copying a live map.
+ */
+public final class CachedHeaders {
+
+    // Set per hit by the proxy, never stored
+    private static final Set<String> EXCLUDED = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        EXCLUDED.addAll(Set.of("Age", "Cache-Control", "X-Cache", "NW-RequestID"));
+    }
+
+    private final CharSequence[] names;
+    private final CharSequence[] values;
+    private final int byteSize;
+
+    private CachedHeaders(CharSequence[] names, CharSequence[] values, int byteSize) {
+        this.names = names;
+        this.values = values;
+        this.byteSize = byteSize;
+    }
+
+    /**
+     * Snapshot already-filtered response headers into a cacheable block.
+     */
+    public static CachedHeaders from(MultiMap headers) {
+        int count = 0;
+        for (Map.Entry<String, String> header : headers) {
+            if (!EXCLUDED.contains(header.getKey())) {
+                count++;
+            }
+        }
+
+        CharSequence[] names = new CharSequence[count];
+        CharSequence[] values = new CharSequence[count];
+        int byteSize = 0;
+        int i = 0;
+        for (Map.Entry<String, String> header : headers) {
+            if (EXCLUDED.contains(header.getKey())) {
+                continue;
+            }
+            names[i] = HttpHeaders.createOptimized(header.getKey());
+            values[i] = HttpHeaders.createOptimized(header.getValue());
+            byteSize += names[i].length() + values[i].length() + 4;
+            i++;
+        }
+        return new CachedHeaders(names, values, byteSize);
+    }
+
+    /**
+     * Append all stored headers to the given (empty) response headers.
+     */
+    public void writeTo(MultiMap target) {
+        for (int i = 0; i < names.length; i++) {
+            target.add(names[i], values[i]);
+        }
+    }
+
+    /**
+     * Copy of this block with the given header replaced (or added when absent).
+     */
+    public CachedHeaders with(String name, String value) {
+        CharSequence optimizedName = HttpHeaders.createOptimized(name);
+        CharSequence optimizedValue = HttpHeaders.createOptimized(value);
+
+        int index = indexOf(name);
+        int count = index == -1 ? names.length + 1 : names.length;
+        CharSequence[] newNames = Arrays.copyOf(names, count);
+        CharSequence[] newValues = Arrays.copyOf(values, count);
+        int newByteSize = byteSize + optimizedValue.length();
+        if (index == -1) {
+            index = names.length;
+            newByteSize += optimizedName.length() + 4;
+        } else {
+            newByteSize -= values[index].length();
+        }
+        newNames[index] = optimizedName;
+        newValues[index] = optimizedValue;
+        return new CachedHeaders(newNames, newValues, newByteSize);
+    }
+
+    public String get(String name) {
+        int index = indexOf(name);
+        return index == -1 ? null : values[index].toString();
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (name.equalsIgnoreCase(names[i].toString())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Approximate wire size of the block in bytes.
+     */
+    public int getByteSize() {
+        return byteSize;
+    }
+}
@@ -2,6 +2,8 @@ package eu.netward.cache;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
 import com.github.benmanes.caffeine.cache.Weigher;
 import com.github.benmanes.caffeine.cache.stats.CacheStats;
 
@@ -9,78 +11,286 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Response cache split into size-class segments (small / medium / large) with
+ * separate weight budgets, so a few large objects cannot displace the many small
+ * entries that carry most hits. Large objects are only admitted on their second
+ * fill within the doorkeeper window.
+ */
 public class ResponseCache {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(ResponseCache.class);
-    
-    private final Cache<String, CacheEntry> cache;
-    
+
+    private static final long DEFAULT_SMALL_MAX_BYTES = 64 * 1024;
+    private static final long DEFAULT_LARGE_MIN_BYTES = 1024 * 1024;
+    private static final double DEFAULT_SMALL_SHARE = 0.40;
+    private static final double DEFAULT_MEDIUM_SHARE = 0.35;
+    private static final int DOORKEEPER_SLOTS = 1 << 16;
+
+    public enum SizeClass {
+        SMALL, MEDIUM, LARGE
+    }
+
+    private final Segment[] segments;
+    private final long smallMaxBytes;
+    private final long largeMinBytes;
+    private final AtomicLongArray doorkeeper = new AtomicLongArray(DOORKEEPER_SLOTS);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Ticker ticker;
+
     public ResponseCache(long maxWeightBytes, long maxAgeSeconds) {
-        this.cache = Caffeine.newBuilder()
-            .maximumWeight(maxWeightBytes)
-            .weigher((Weigher<String, CacheEntry>) (key, value) -> value.getWeight())
-            .expireAfterWrite(Duration.ofSeconds(maxAgeSeconds))
-            .recordStats()
-            .removalListener((key, value, cause) -> {
-                if (value != null) {
-                    logger.debug("Cache entry evicted: {} ({} bytes, age: {}s, reason: {})", 
-                        key, value.getBody().length(), value.getAgeSeconds(), cause);
-                }
-            })
-            .build();
-    }
-    
+        this(maxWeightBytes, maxAgeSeconds, DEFAULT_SMALL_MAX_BYTES, DEFAULT_LARGE_MIN_BYTES,
+            DEFAULT_SMALL_SHARE, DEFAULT_MEDIUM_SHARE);
+    }
+
+    /**
+     * @param smallMaxBytes entries up to this weight go to the small segment
+     * @param largeMinBytes entries from this weight on go to the large segment
+     * @param smallShare share of the total budget for the small segment
+     * @param mediumShare share of the total budget for the medium segment, the rest is for large
+     */
+    public ResponseCache(long maxWeightBytes, long maxAgeSeconds, long smallMaxBytes, long largeMinBytes,
+                         double smallShare, double mediumShare) {
+        this(maxWeightBytes, maxAgeSeconds, smallMaxBytes, largeMinBytes, smallShare, mediumShare, null);
+    }
+
+    /**
+     * @param ticker time source for expiry and staleness, null for wall-clock time.
+     *               A custom ticker also runs cache maintenance on the calling thread,
+     *               which keeps trace replays deterministic.
+     */
+    public ResponseCache(long maxWeightBytes, long maxAgeSeconds, long smallMaxBytes, long largeMinBytes,
+                         double smallShare, double mediumShare, Ticker ticker) {
+        this.ticker = ticker;
+        this.smallMaxBytes = smallMaxBytes;
+        this.largeMinBytes = largeMinBytes;
+
+        long smallBudget = (long) (maxWeightBytes * smallShare);
+        long mediumBudget = (long) (maxWeightBytes * mediumShare);
+        long largeBudget = Math.max(0, maxWeightBytes - smallBudget - mediumBudget);
+
+        this.segments = new Segment[] {
+            new Segment(SizeClass.SMALL, smallBudget, maxAgeSeconds, ticker),
+            new Segment(SizeClass.MEDIUM, mediumBudget, maxAgeSeconds, ticker),
+            new Segment(SizeClass.LARGE, largeBudget, maxAgeSeconds, ticker)
+        };
+    }
+
     public void put(String key, CacheEntry entry) {
-        cache.put(key, entry);
-        logger.info("Cached: {} ({} bytes, TTL: {}s)", 
-            key, entry.getBody().length(), entry.getTtlSeconds());
+        SizeClass sizeClass = classify(entry.getWeight());
+        Segment segment = segments[sizeClass.ordinal()];
+
+        // Large objects need a second fill before they may take space
+        if (sizeClass == SizeClass.LARGE && !passDoorkeeper(key)) {
+            segment.rejected.increment();
+            logger.debug("Not admitting large entry on first access: {} ({} bytes)", key, entry.getBodyLength());
+            return;
+        }
+
+        // An entry may move between classes when the object changes size
+        for (Segment other : segments) {
+            if (other != segment) {
+                other.cache.invalidate(key);
+            }
+        }
+
+        segment.cache.put(key, entry);
+        segment.puts.increment();
+        logger.info("Cached: {} ({} bytes, TTL: {}s, segment: {})",
+            key, entry.getBodyLength(), entry.getTtlSeconds(), sizeClass);
     }
-    
+
     public CacheEntry get(String key) {
-        CacheEntry entry = cache.getIfPresent(key);
-        if (entry != null && entry.isStale()) {
-            logger.debug("Cache entry stale, invalidating: {}", key);
-            cache.invalidate(key);
-            return null;
+        return count(lookup(key));
+    }
+
+    /**
+     * First fresh entry among the keys (e.g. image variants, then the original),
+     * counted as a single hit or miss.
+     */
+    public CacheEntry get(List<String> keys) {
+        for (String key : keys) {
+            CacheEntry entry = lookup(key);
+            if (entry != null) {
+                return count(entry);
+            }
+        }
+        return count(null);
+    }
+
+    private CacheEntry lookup(String key) {
+        long now = ticker == null ? System.currentTimeMillis() : ticker.read() / 1_000_000;
+
+        // Small first, that is where most hits are
+        for (Segment segment : segments) {
+            CacheEntry entry = segment.cache.getIfPresent(key);
+            if (entry == null) {
+                continue;
+            }
+            if (entry.isStale(now)) {
+                logger.debug("Cache entry stale, invalidating: {}", key);
+                segment.cache.invalidate(key);
+                return null;
+            }
+            segment.hits.increment();
+            return entry;
+        }
+        return null;
+    }
+
+    private CacheEntry count(CacheEntry entry) {
+        if (entry == null) {
+            misses.increment();
+        } else {
+            hits.increment();
         }
         return entry;
     }
-    
+
     public void invalidate(String key) {
-        cache.invalidate(key);
+        for (Segment segment : segments) {
+            segment.cache.invalidate(key);
+        }
         logger.info("Invalidated cache entry: {}", key);
     }
-    
+
     public void invalidateAll() {
-        cache.invalidateAll();
+        for (Segment segment : segments) {
+            segment.cache.invalidateAll();
+        }
         logger.info("Cleared all cache entries");
     }
-    
+
     public void invalidatePattern(String pattern) {
-        long count = cache.asMap().keySet().stream()
-            .filter(key -> key.matches(pattern))
-            .peek(cache::invalidate)
-            .count();
+        long count = 0;
+        for (Segment segment : segments) {
+            count += segment.cache.asMap().keySet().stream()
+                .filter(key -> key.matches(pattern))
+                .peek(segment.cache::invalidate)
+                .count();
+        }
         logger.info("Purged {} cache entries matching pattern: {}", count, pattern);
     }
-    
+
     public long size() {
-        return cache.estimatedSize();
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.cache.estimatedSize();
+        }
+        return size;
     }
-    
+
+    public SizeClass classify(long weight) {
+        if (weight <= smallMaxBytes) {
+            return SizeClass.SMALL;
+        }
+        return weight < largeMinBytes ? SizeClass.MEDIUM : SizeClass.LARGE;
+    }
+
     public CacheStats getStats() {
-        return cache.stats();
+        long evictions = 0;
+        long evictionWeight = 0;
+        for (Segment segment : segments) {
+            evictions += segment.evictions.sum();
+            evictionWeight += segment.evictionWeight.sum();
+        }
+        return CacheStats.of(hits.sum(), misses.sum(), 0, 0, 0, evictions, evictionWeight);
     }
-    
+
+    public SegmentStats getStats(SizeClass sizeClass) {
+        Segment segment = segments[sizeClass.ordinal()];
+        long weightedSize = segment.cache.policy().eviction()
+            .map(eviction -> eviction.weightedSize().orElse(0))
+            .orElse(0L);
+        return new SegmentStats(sizeClass, segment.budget, weightedSize, segment.cache.estimatedSize(),
+            segment.hits.sum(), segment.puts.sum(), segment.rejected.sum(), segment.evictions.sum());
+    }
+
     public void logStats() {
-        CacheStats stats = cache.stats();
-        logger.info("Cache stats - Size: {}, Hits: {}, Misses: {}, Hit rate: {:.2f}%, Evictions: {}, Load failures: {}", 
-            cache.estimatedSize(),
-            stats.hitCount(), 
+        CacheStats stats = getStats();
+        logger.info("Cache stats - Size: {}, Hits: {}, Misses: {}, Hit rate: {}%, Evictions: {}",
+            size(),
+            stats.hitCount(),
             stats.missCount(),
-            stats.hitRate() * 100,
-            stats.evictionCount(),
-            stats.loadFailureCount());
+            String.format("%.2f", stats.hitRate() * 100),
+            stats.evictionCount());
+
+        for (SizeClass sizeClass : SizeClass.values()) {
+            SegmentStats segment = getStats(sizeClass);
+            logger.info("Cache segment {} - Entries: {}, Weight: {}/{} bytes, Hits: {}, Puts: {}, Rejected: {}, Evictions: {}",
+                sizeClass,
+                segment.entries(),
+                segment.weightedSize(),
+                segment.budget(),
+                segment.hits(),
+                segment.puts(),
+                segment.rejected(),
+                segment.evictions());
+        }
+    }
+
+    /**
+     * Direct-mapped doorkeeper of recently seen key fingerprints: the first fill
+     * only records the key, a second fill while it is still remembered is admitted.
+     */
+    private boolean passDoorkeeper(String key) {
+        long hash = spread(key.hashCode()) | 1L;
+        int slot = (int) (hash & (DOORKEEPER_SLOTS - 1));
+        if (doorkeeper.get(slot) == hash) {
+            doorkeeper.compareAndSet(slot, hash, 0L);
+            return true;
+        }
+        doorkeeper.set(slot, hash);
+        return false;
+    }
+
+    private static long spread(int hashCode) {
+        long h = hashCode * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    public record SegmentStats(SizeClass sizeClass, long budget, long weightedSize, long entries,
+                               long hits, long puts, long rejected, long evictions) {
+    }
+
+    private static final class Segment {
+
+        private final long budget;
+        private final Cache<String, CacheEntry> cache;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder puts = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder evictionWeight = new LongAdder();
+
+        private Segment(SizeClass sizeClass, long budget, long maxAgeSeconds, Ticker ticker) {
+            this.budget = budget;
+
+            Caffeine<Object, Object> builder = Caffeine.newBuilder();
+            if (ticker != null) {
+                builder.ticker(ticker).executor(Runnable::run);
+            }
+
+            this.cache = builder
+                .maximumWeight(budget)
+                .weigher((Weigher<String, CacheEntry>) (key, value) -> value.getWeight())
+                .expireAfterWrite(Duration.ofSeconds(maxAgeSeconds))
+                .removalListener((String key, CacheEntry value, RemovalCause cause) -> {
+                    if (value != null) {
+                        if (cause.wasEvicted()) {
+                            evictions.increment();
+                            evictionWeight.add(value.getWeight());
+                        }
+                        logger.debug("Cache entry evicted: {} ({} bytes, age: {}s, reason: {}, segment: {})",
+                            key, value.getBodyLength(), value.getAgeSeconds(), cause, sizeClass);
+                    }
+                })
+                .build();
+        }
     }
 }
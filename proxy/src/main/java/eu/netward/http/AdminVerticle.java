@@ -0,0 +1,69 @@
+package eu.netward.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.netward.proxy.FloodGuard;
+import eu.netward.util.HeavyHitters;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Internal status listener, bound to loopback unless configured otherwise.
+ * {@code GET /flood} returns the flood guard's current heavy hitters per dimension.
+ */
+public class AdminVerticle extends AbstractVerticle {
+
+    private static Logger logger = LoggerFactory.getLogger(AdminVerticle.class);
+
+    private final FloodGuard floodGuard;
+    private final String host;
+    private final int port;
+
+    public AdminVerticle(FloodGuard floodGuard, String host, int port) {
+        this.floodGuard = floodGuard;
+        this.host = host;
+        this.port = port;
+    }
+
+    @Override
+    public void start(Promise<Void> startPromise) {
+        vertx.createHttpServer()
+                .requestHandler(this::handle)
+                .listen(port, host)
+                .onSuccess(s -> {
+                    logger.info("✓ Admin listener started on {}:{}", host, port);
+                    startPromise.complete();
+                })
+                .onFailure(err -> {
+                    logger.error("✗ Failed to start admin listener: " + err.getMessage(), err);
+                    startPromise.fail(err);
+                });
+    }
+
+    private void handle(HttpServerRequest req) {
+        if (req.method() != HttpMethod.GET || !"/flood".equals(req.path())) {
+            req.response().setStatusCode(404).end();
+            return;
+        }
+
+        JsonObject body = new JsonObject().put("enabled", floodGuard.isEnabled());
+        for (FloodGuard.Dimension dimension : FloodGuard.Dimension.values()) {
+            JsonArray top = new JsonArray();
+            for (HeavyHitters.Entry entry : floodGuard.getTopK(dimension)) {
+                top.add(new JsonObject().put("key", entry.key()).put("count", entry.count()));
+            }
+            body.put(dimension.name().toLowerCase(), new JsonObject()
+                    .put("blocked", floodGuard.getBlockedCount(dimension))
+                    .put("top", top));
+        }
+
+        req.response()
+                .putHeader("Content-Type", "application/json")
+                .end(body.encodePrettily());
+    }
+}
@@ -9,6 +9,7 @@ import io.vertx.core.Promise;
 import io.vertx.core.http.HttpClient;
 import io.vertx.core.http.HttpClientOptions;
 import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
 import io.vertx.core.http.PoolOptions;
 
 public class HttpVerticle extends AbstractVerticle {
@@ -16,37 +17,56 @@ public class HttpVerticle extends AbstractVerticle {
     private static Logger logger = LoggerFactory.getLogger(HttpVerticle.class);
 
     private HttpClient client;
+    private HttpClient tunnelClient;
 
     private ProxyHandler proxyHandler;
+    private NetworkTuning networkTuning;
     private int port = 8080;
 
-    public HttpVerticle(ProxyHandler proxyHandler, int port) {
+    public HttpVerticle(ProxyHandler proxyHandler, NetworkTuning networkTuning, int port) {
         this.proxyHandler = proxyHandler;
+        this.networkTuning = networkTuning;
         this.port = port;
     }
 
     @Override
     public void start(Promise<Void> startPromise) {
         // Create HTTP client with better settings for proxying
+        // NETWARD_HTTP1_POOL is the total for the node, split across the acceptor instances
         Integer http1PoolSize = Integer.parseInt(System.getenv().getOrDefault("NETWARD_HTTP1_POOL", "20"));
+        http1PoolSize = Math.max(1, http1PoolSize / networkTuning.getAcceptors());
 
         PoolOptions options = new PoolOptions().setHttp1MaxSize(http1PoolSize);
 
         client = vertx
                 .httpClientBuilder()
                 .with(options)
-                .with(new HttpClientOptions()
+                .with(networkTuning.apply(new HttpClientOptions()
                         .setKeepAlive(true)
                         .setIdleTimeout(120)
-                        .setConnectTimeout(10000))
+                        .setConnectTimeout(10000)))
                 .build();
 
-        // Create HTTP server
-        HttpServer server = vertx.createHttpServer();
+        // Dedicated client for WebSocket / Upgrade tunnels, kept out of the shared pool
+        tunnelClient = proxyHandler.getUpgradeTunnel().createClient(vertx, networkTuning);
+
+        // Create HTTP server with header limits; slow clients are handled by a header deadline and a
+        // body idle timeout instead of a connection idle timeout, which would also cut off long responses
+        // netward speaks HTTP/1.x only; h2c detection would hold a new connection back from the
+        // header deadline until its first bytes arrived
+        HttpServerOptions serverOptions = new HttpServerOptions()
+                .setHttp2ClearTextEnabled(false)
+                .setMaxHeaderSize(Integer.parseInt(System.getenv().getOrDefault("NETWARD_MAX_HEADER_SIZE", "8192")))
+                .setMaxInitialLineLength(Integer.parseInt(System.getenv().getOrDefault("NETWARD_MAX_INITIAL_LINE", "4096")));
+        RequestDeadline requestDeadline = RequestDeadline.fromEnv(vertx);
+
+        HttpServer server = vertx.createHttpServer(networkTuning.apply(serverOptions));
+        server.connectionHandler(requestDeadline::onConnection);
         server.requestHandler(req -> {
             // Pause the request immediately to prevent it from being consumed
             req.pause();
-            proxyHandler.handleProxy(req, client);
+            requestDeadline.onRequest(req);
+            proxyHandler.handleProxy(req, client, tunnelClient);
         });
 
         // Start the server
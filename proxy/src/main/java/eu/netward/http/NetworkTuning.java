@@ -0,0 +1,82 @@
+package eu.netward.http;
+
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpServerOptions;
+
+/**
+ * Transport and socket settings read from the environment.
+ * With NETWARD_NATIVE_TRANSPORT Vert.x uses Netty's epoll transport when it is
+ * available (falling back to NIO otherwise), which enables TCP_FASTOPEN.
+ * The acceptor instances of one Vert.x share a single listening socket; Vert.x
+ * hands accepted connections to their event loops round-robin. Socket buffer
+ * sizes are left to the kernel unless configured.
+ */
+public class NetworkTuning {
+
+    private final boolean nativeTransport;
+    private final int acceptors;
+    private final boolean tcpFastOpen;
+    private final boolean reusePort;
+    private final int sendBufferSize;
+    private final int receiveBufferSize;
+
+    public NetworkTuning(boolean nativeTransport, int acceptors, boolean tcpFastOpen, boolean reusePort,
+                         int sendBufferSize, int receiveBufferSize) {
+        this.nativeTransport = nativeTransport;
+        this.acceptors = acceptors;
+        this.tcpFastOpen = tcpFastOpen;
+        this.reusePort = reusePort;
+        this.sendBufferSize = sendBufferSize;
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    public static NetworkTuning fromEnv() {
+        int defaultAcceptors = VertxOptions.DEFAULT_EVENT_LOOP_POOL_SIZE;
+        return new NetworkTuning(
+            Boolean.parseBoolean(System.getenv().getOrDefault("NETWARD_NATIVE_TRANSPORT", "true")),
+            Integer.parseInt(System.getenv().getOrDefault("NETWARD_ACCEPTORS", String.valueOf(defaultAcceptors))),
+            Boolean.parseBoolean(System.getenv().getOrDefault("NETWARD_TCP_FASTOPEN", "true")),
+            Boolean.parseBoolean(System.getenv().getOrDefault("NETWARD_REUSE_PORT", "false")),
+            Integer.parseInt(System.getenv().getOrDefault("NETWARD_SOCKET_SNDBUF", "-1")),
+            Integer.parseInt(System.getenv().getOrDefault("NETWARD_SOCKET_RCVBUF", "-1")));
+    }
+
+    public VertxOptions vertxOptions() {
+        return new VertxOptions().setPreferNativeTransport(nativeTransport);
+    }
+
+    /**
+     * Number of {@link HttpVerticle} instances, ideally one per event loop.
+     */
+    public int getAcceptors() {
+        return Math.max(1, acceptors);
+    }
+
+    public HttpServerOptions apply(HttpServerOptions options) {
+        // SO_REUSEPORT is opt-in: it lets a new process take over the port during a rolling
+        // restart, but also lets a stray second instance bind silently and take half the connections
+        options.setTcpNoDelay(true)
+            .setReusePort(reusePort)
+            .setTcpFastOpen(tcpFastOpen);
+        if (sendBufferSize > 0) {
+            options.setSendBufferSize(sendBufferSize);
+        }
+        if (receiveBufferSize > 0) {
+            options.setReceiveBufferSize(receiveBufferSize);
+        }
+        return options;
+    }
+
+    public HttpClientOptions apply(HttpClientOptions options) {
+        options.setTcpNoDelay(true)
+            .setTcpFastOpen(tcpFastOpen);
+        if (sendBufferSize > 0) {
+            options.setSendBufferSize(sendBufferSize);
+        }
+        if (receiveBufferSize > 0) {
+            options.setReceiveBufferSize(receiveBufferSize);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,324 @@
+package eu.netward.http;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.netward.model.HttpStatus;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.AsyncFile;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+
+/**
+ * Enforces request body limits and optionally reads uploads completely (small ones
+ * to memory, large ones to a temp file) before an upstream connection is taken
+ * from the pool, so slow clients cannot pin scarce upstream connections.
+ * Every body read fails when the client sends no data for the idle timeout.
+ */
+public class RequestBodyBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestBodyBuffer.class);
+
+    private final Vertx vertx;
+    private final boolean enabled;
+    private final long maxBodySize;
+    private final long memoryLimit;
+    private final long timeoutMillis;
+
+    /**
+     * @param timeoutMillis longest time without body data from the client, 0 disables the timeout
+     */
+    public RequestBodyBuffer(Vertx vertx, boolean enabled, long maxBodySize, long memoryLimit, long timeoutMillis) {
+        this.vertx = vertx;
+        this.enabled = enabled;
+        this.maxBodySize = maxBodySize;
+        this.memoryLimit = memoryLimit;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public static RequestBodyBuffer fromEnv(Vertx vertx) {
+        return new RequestBodyBuffer(
+            vertx,
+            Boolean.parseBoolean(System.getenv().getOrDefault("NETWARD_BODY_BUFFERING", "false")),
+            Long.parseLong(System.getenv().getOrDefault("NETWARD_MAX_BODY_SIZE", String.valueOf(50 * 1024 * 1024))),
+            Long.parseLong(System.getenv().getOrDefault("NETWARD_BODY_MEMORY_LIMIT", String.valueOf(1024 * 1024))),
+            // Same limit as for the request headers, see RequestDeadline
+            Long.parseLong(System.getenv().getOrDefault("NETWARD_REQUEST_TIMEOUT", "30")) * 1000);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Check the declared Content-Length against the limit before reading anything.
+     */
+    public boolean exceedsLimit(HttpServerRequest req) {
+        return contentLength(req) > maxBodySize;
+    }
+
+    public static boolean hasBody(HttpServerRequest req) {
+        return contentLength(req) > 0 || req.headers().contains(HttpHeaders.TRANSFER_ENCODING);
+    }
+
+    /**
+     * Read the whole (paused) request body. Requests without a body and bodies with a
+     * known length up to the memory limit are kept in memory. Other bodies are spooled
+     * to a temp file, deleted once the client response has ended, when buffering is
+     * enabled; otherwise they are read to memory within the body size limit.
+     */
+    public Future<BufferedBody> read(HttpServerRequest req) {
+        long length = contentLength(req);
+        boolean inMemory = !enabled || !hasBody(req) || (length >= 0 && length <= memoryLimit);
+        Future<BufferedBody> future = inMemory ? readToMemory(req) : readToFile(req);
+
+        return future.onSuccess(body -> {
+            req.response().endHandler(v -> body.release());
+            req.response().closeHandler(v -> body.release());
+        });
+    }
+
+    /**
+     * Stream the request body upstream. Bodies without a Content-Length are counted
+     * against the limit while they are forwarded; the declared length was already
+     * checked and is enforced by the codec.
+     */
+    public Future<Void> pipe(HttpServerRequest req, HttpClientRequest proxyReq) {
+        Promise<Void> promise = Promise.promise();
+        IdleTimeout idle = new IdleTimeout(promise);
+        long[] received = {0};
+
+        req.handler(chunk -> {
+            idle.touch();
+            received[0] += chunk.length();
+            if (received[0] > maxBodySize) {
+                promise.tryFail(new BodyRejectedException(HttpStatus.PAYLOAD_TOO_LARGE, "Request body exceeds " + maxBodySize + " bytes"));
+                return;
+            }
+
+            proxyReq.write(chunk);
+            if (proxyReq.writeQueueFull()) {
+                // Upstream is the slow side, stop the client's clock
+                req.pause();
+                idle.pause();
+                proxyReq.drainHandler(v -> {
+                    idle.resume();
+                    req.resume();
+                });
+            }
+        });
+        req.exceptionHandler(promise::tryFail);
+        req.endHandler(v -> proxyReq.end().onComplete(ar -> {
+            if (ar.succeeded()) {
+                promise.tryComplete();
+            } else {
+                promise.tryFail(ar.cause());
+            }
+        }));
+        req.resume();
+
+        return promise.future();
+    }
+
+    private Future<BufferedBody> readToMemory(HttpServerRequest req) {
+        Promise<BufferedBody> promise = Promise.promise();
+        Buffer body = Buffer.buffer();
+        IdleTimeout idle = new IdleTimeout(promise);
+
+        req.handler(chunk -> {
+            idle.touch();
+            if (body.length() + chunk.length() > maxBodySize) {
+                promise.tryFail(new BodyRejectedException(HttpStatus.PAYLOAD_TOO_LARGE, "Request body exceeds " + maxBodySize + " bytes"));
+                return;
+            }
+            body.appendBuffer(chunk);
+        });
+        req.exceptionHandler(promise::tryFail);
+        req.endHandler(v -> promise.tryComplete(new BufferedBody(vertx, body, null, body.length())));
+        req.resume();
+
+        return promise.future();
+    }
+
+    private Future<BufferedBody> readToFile(HttpServerRequest req) {
+        Promise<BufferedBody> promise = Promise.promise();
+
+        vertx.fileSystem().createTempFile("netward-upload-", ".tmp")
+            .onSuccess(path -> vertx.fileSystem().open(path, new OpenOptions().setWrite(true))
+                .onSuccess(file -> spool(req, file, path, promise))
+                .onFailure(err -> {
+                    vertx.fileSystem().delete(path);
+                    promise.tryFail(err);
+                }))
+            .onFailure(promise::tryFail);
+
+        return promise.future();
+    }
+
+    private void spool(HttpServerRequest req, AsyncFile file, String path, Promise<BufferedBody> promise) {
+        long[] received = {0};
+        IdleTimeout idle = new IdleTimeout(promise);
+
+        req.handler(chunk -> {
+            idle.touch();
+            received[0] += chunk.length();
+            if (received[0] > maxBodySize) {
+                promise.tryFail(new BodyRejectedException(HttpStatus.PAYLOAD_TOO_LARGE, "Request body exceeds " + maxBodySize + " bytes"));
+                return;
+            }
+
+            file.write(chunk);
+            if (file.writeQueueFull()) {
+                req.pause();
+                idle.pause();
+                file.drainHandler(v -> {
+                    idle.resume();
+                    req.resume();
+                });
+            }
+        });
+        req.exceptionHandler(promise::tryFail);
+        req.endHandler(v -> file.close()
+            .onSuccess(x -> promise.tryComplete(new BufferedBody(vertx, null, path, received[0])))
+            .onFailure(promise::tryFail));
+        req.resume();
+
+        promise.future().onComplete(ar -> {
+            if (ar.failed()) {
+                file.close();
+                vertx.fileSystem().delete(path);
+            } else {
+                logger.debug("Spooled {} byte request body to {}", received[0], path);
+            }
+        });
+    }
+
+    /**
+     * Fails a body read when the client sent no data for the timeout. The clock starts
+     * when netward begins reading, so waiting for a zone lookup or a pooled connection
+     * does not count, and it is stopped while the request is paused because the
+     * upstream or temp file cannot take more data. Like the tunnel's idle timer, one
+     * timer per read is re-armed for the remaining time instead of reset per chunk.
+     */
+    private final class IdleTimeout {
+
+        private final Promise<?> promise;
+        private long lastActivity = System.currentTimeMillis();
+        private boolean paused;
+        private long timer = -1;
+
+        private IdleTimeout(Promise<?> promise) {
+            this.promise = promise;
+            if (timeoutMillis > 0) {
+                schedule(timeoutMillis);
+                promise.future().onComplete(ar -> vertx.cancelTimer(timer));
+            }
+        }
+
+        private void touch() {
+            lastActivity = System.currentTimeMillis();
+        }
+
+        private void pause() {
+            paused = true;
+        }
+
+        private void resume() {
+            paused = false;
+            touch();
+        }
+
+        private void schedule(long delay) {
+            timer = vertx.setTimer(delay, id -> {
+                if (promise.future().isComplete()) {
+                    return;
+                }
+                long idle = System.currentTimeMillis() - lastActivity;
+                if (paused || idle < timeoutMillis) {
+                    schedule(paused ? timeoutMillis : timeoutMillis - idle);
+                    return;
+                }
+                promise.tryFail(new BodyRejectedException(HttpStatus.REQUEST_TIMEOUT, "No request body data received for " + timeoutMillis + " ms"));
+            });
+        }
+    }
+
+    private static long contentLength(HttpServerRequest req) {
+        String contentLength = req.getHeader(HttpHeaders.CONTENT_LENGTH);
+        if (contentLength == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * A fully received request body held in memory or in a temp file.
+     */
+    public static class BufferedBody {
+
+        private final Vertx vertx;
+        private final Buffer memory;
+        private final String path;
+        private final long length;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private BufferedBody(Vertx vertx, Buffer memory, String path, long length) {
+            this.vertx = vertx;
+            this.memory = memory;
+            this.path = path;
+            this.length = length;
+        }
+
+        public long length() {
+            return length;
+        }
+
+        /**
+         * Send the body as the complete upstream request. Can be called more than once
+         * (e.g. parent tier, then origin) until the body is released.
+         */
+        public Future<Void> sendTo(HttpClientRequest proxyReq) {
+            proxyReq.putHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(length));
+            if (memory != null) {
+                return proxyReq.end(memory);
+            }
+
+            return vertx.fileSystem().open(path, new OpenOptions().setRead(true))
+                .compose(file -> file.pipeTo(proxyReq).onComplete(ar -> file.close()));
+        }
+
+        public void release() {
+            if (path != null && released.compareAndSet(false, true)) {
+                vertx.fileSystem().delete(path);
+            }
+        }
+    }
+
+    /**
+     * Request body rejected because of a configured limit.
+     */
+    public static class BodyRejectedException extends RuntimeException {
+
+        private final HttpStatus status;
+
+        public BodyRejectedException(HttpStatus status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        public HttpStatus getStatus() {
+            return status;
+        }
+    }
+}
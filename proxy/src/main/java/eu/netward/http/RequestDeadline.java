@@ -0,0 +1,96 @@
+package eu.netward.http;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.netward.proxy.UpgradeTunnel;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpConnection;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpVersion;
+
+/**
+ * Slow-client guard for request headers. For HTTP/1.x a client gets a fixed time
+ * to send its request headers, from the moment the connection opened or the
+ * previous response was sent. Bodies are guarded by the idle timeout in
+ * {@link RequestBodyBuffer}, which only runs while netward is actually reading,
+ * and responses - downloads, streams, long-polls - are never cut off.
+ *
+ * <p>One instance per {@link HttpVerticle}; all state is confined to its event loop.
+ */
+public class RequestDeadline {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestDeadline.class);
+
+    private final Vertx vertx;
+    private final long timeoutMillis;
+    private final Map<HttpConnection, Long> headerTimers = new HashMap<>();
+
+    public RequestDeadline(Vertx vertx, long timeoutMillis) {
+        this.vertx = vertx;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public static RequestDeadline fromEnv(Vertx vertx) {
+        return new RequestDeadline(vertx,
+            Long.parseLong(System.getenv().getOrDefault("NETWARD_REQUEST_TIMEOUT", "30")) * 1000);
+    }
+
+    /**
+     * A new connection has to send its first request headers in time.
+     */
+    public void onConnection(HttpConnection connection) {
+        if (timeoutMillis <= 0) {
+            return;
+        }
+        armHeaders(connection);
+        connection.closeHandler(v -> cancelHeaders(connection));
+    }
+
+    /**
+     * Headers arrived: stop the header deadline until the response has been sent.
+     */
+    public void onRequest(HttpServerRequest req) {
+        if (timeoutMillis <= 0) {
+            return;
+        }
+
+        HttpConnection connection = req.connection();
+        cancelHeaders(connection);
+
+        // The connection becomes a tunnel after an upgrade
+        if (UpgradeTunnel.isUpgrade(req)) {
+            return;
+        }
+
+        req.response().bodyEndHandler(v -> {
+            // A kept-alive HTTP/1.x connection has to send its next headers in time as well
+            if (req.version() != HttpVersion.HTTP_2 && !req.response().closed()) {
+                armHeaders(connection);
+            }
+        });
+    }
+
+    private void armHeaders(HttpConnection connection) {
+        long timer = vertx.setTimer(timeoutMillis, id -> {
+            if (headerTimers.remove(connection, id)) {
+                logger.debug("No request headers within {} ms from {}, closing", timeoutMillis, connection.remoteAddress());
+                connection.close();
+            }
+        });
+        Long previous = headerTimers.put(connection, timer);
+        if (previous != null) {
+            vertx.cancelTimer(previous);
+        }
+    }
+
+    private void cancelHeaders(HttpConnection connection) {
+        Long timer = headerTimers.remove(connection);
+        if (timer != null) {
+            vertx.cancelTimer(timer);
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package eu.netward.image;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.netward.cache.CacheEntry;
+import eu.netward.cache.CachedHeaders;
+import eu.netward.cache.ResponseCache;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+
+/**
+ * Produces resized / re-encoded variants of cached images on a bounded worker pool.
+ * Variants are stored in the {@link ResponseCache} next to the original under
+ * {@code <key>#img:w=<width>,fmt=<format>}; image work never runs on the event loop.
+ */
+public class ImageOptimizer {
+
+    /** Query parameter selecting a width bucket. */
+    public static final String WIDTH_PARAM = "nw-width";
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageOptimizer.class);
+    private static final String VARIANT_SEPARATOR = "#img:";
+
+    static {
+        System.setProperty("java.awt.headless", "true");
+        ImageIO.setUseCache(false);
+    }
+
+    private final ResponseCache responseCache;
+    private final ThreadPoolExecutor workers;
+    private final int[] widthBuckets;
+    private final float quality;
+    private final long maxPixels;
+    private final boolean webpSupported;
+
+    public ImageOptimizer(ResponseCache responseCache, int threads, int queueSize, int[] widthBuckets,
+                          float quality, long maxPixels) {
+        this.responseCache = responseCache;
+        this.widthBuckets = widthBuckets.clone();
+        Arrays.sort(this.widthBuckets);
+        this.quality = quality;
+        this.maxPixels = maxPixels;
+
+        // The JDK ships no WebP encoder, it comes from the webp-imageio plugin (glibc only)
+        this.webpSupported = ImageIO.getImageWritersByFormatName("webp").hasNext();
+
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            runnable -> {
+                Thread thread = new Thread(runnable, "netward-image-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+
+        logger.info("✓ Image optimizer started with {} workers (widths: {}, webp: {})",
+            threads, Arrays.toString(this.widthBuckets), webpSupported);
+    }
+
+    public static ImageOptimizer fromEnv(ResponseCache responseCache) {
+        String[] widths = System.getenv().getOrDefault("NETWARD_IMAGE_WIDTHS", "320,640,1280").split(",");
+        int[] buckets = new int[widths.length];
+        for (int i = 0; i < widths.length; i++) {
+            buckets[i] = Integer.parseInt(widths[i].trim());
+        }
+
+        return new ImageOptimizer(
+            responseCache,
+            Integer.parseInt(System.getenv().getOrDefault("NETWARD_IMAGE_WORKERS", "2")),
+            Integer.parseInt(System.getenv().getOrDefault("NETWARD_IMAGE_QUEUE", "64")),
+            buckets,
+            Float.parseFloat(System.getenv().getOrDefault("NETWARD_IMAGE_QUALITY", "0.8")),
+            Long.parseLong(System.getenv().getOrDefault("NETWARD_IMAGE_MAX_PIXELS", "25000000")));
+    }
+
+    public boolean isOptimizable(String contentType) {
+        return formatFor(contentType) != null;
+    }
+
+    /**
+     * Remove the width parameter from a request URI so all variants share one base cache key.
+     */
+    public static String stripWidthParam(String uri) {
+        int queryIndex = uri.indexOf('?');
+        if (queryIndex == -1 || !uri.contains(WIDTH_PARAM + "=")) {
+            return uri;
+        }
+
+        StringBuilder sb = new StringBuilder(uri.length()).append(uri, 0, queryIndex);
+        char separator = '?';
+        for (String param : uri.substring(queryIndex + 1).split("&")) {
+            if (param.isEmpty() || param.startsWith(WIDTH_PARAM + "=")) {
+                continue;
+            }
+            sb.append(separator).append(param);
+            separator = '&';
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Cache keys to try for this request, best match first. Empty when the client
+     * asks for neither a width bucket nor WebP, i.e. the original should be served.
+     */
+    public List<String> candidateKeys(HttpServerRequest req, String baseKey) {
+        int width = 0;
+        String requested = req.getParam(WIDTH_PARAM);
+        if (requested != null) {
+            try {
+                width = bucketFor(Integer.parseInt(requested));
+            } catch (NumberFormatException e) {
+                // Ignore and serve the original width
+            }
+        }
+
+        String accept = req.getHeader("Accept");
+        boolean webp = webpSupported && accept != null && accept.contains("image/webp");
+
+        List<String> keys = new ArrayList<>(3);
+        if (width > 0 && webp) {
+            keys.add(variantKey(baseKey, width, "webp"));
+        }
+        if (width > 0) {
+            keys.add(variantKey(baseKey, width, null));
+        }
+        if (webp) {
+            keys.add(variantKey(baseKey, 0, "webp"));
+        }
+        return keys;
+    }
+
+    /**
+     * Queue variant generation for a freshly cached image. Dropped when the pool is saturated.
+     */
+    public void submit(String baseKey, CacheEntry original, String contentType) {
+        String format = formatFor(contentType);
+        if (format == null || original.getBody().length() == 0) {
+            return;
+        }
+
+        try {
+            workers.execute(() -> produceVariants(baseKey, original, format));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Image queue full, skipping variants for {}", baseKey);
+        }
+    }
+
+    private void produceVariants(String baseKey, CacheEntry original, String format) {
+        long startTime = System.currentTimeMillis();
+        byte[] source = original.getBody().getBytes();
+
+        try {
+            BufferedImage image = decode(source);
+            if (image == null) {
+                return;
+            }
+
+            int created = 0;
+            for (int width : widthBuckets) {
+                if (width >= image.getWidth()) {
+                    break;
+                }
+                BufferedImage scaled = scale(image, width);
+                if (storeVariant(baseKey, original, scaled, width, format, format)) {
+                    created++;
+                }
+                if (webpSupported && !"webp".equals(format) && storeVariant(baseKey, original, scaled, width, "webp", format)) {
+                    created++;
+                }
+            }
+            if (webpSupported && !"webp".equals(format) && storeVariant(baseKey, original, image, 0, "webp", format)) {
+                created++;
+            }
+
+            logger.debug("Created {} image variants for {} in {} ms", created, baseKey, System.currentTimeMillis() - startTime);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to optimize image {}: {}", baseKey, e.getMessage());
+        }
+    }
+
+    private boolean storeVariant(String baseKey, CacheEntry original, BufferedImage image, int width,
+                                 String format, String sourceFormat) throws IOException {
+        long remainingTtl = original.getTtlSeconds() - original.getAgeSeconds();
+        if (remainingTtl <= 0) {
+            return false;
+        }
+
+        byte[] encoded = encode(image, format);
+        // Only keep variants that actually save bytes
+        if (encoded == null || encoded.length >= original.getBody().length()) {
+            return false;
+        }
+
+        CachedHeaders headers = original.getHeaders()
+            .with("Content-Length", String.valueOf(encoded.length));
+        // The same URL only depends on Accept when a WebP variant may be served for it
+        if (webpSupported) {
+            headers = headers.with("Vary", addVaryToken(headers.get("Vary"), "Accept"));
+        }
+        if (!format.equals(sourceFormat)) {
+            headers = headers.with("Content-Type", "image/" + format);
+        }
+        String etag = original.getETag();
+        if (etag != null) {
+            headers = headers.with("ETag", variantETag(etag, width, format));
+        }
+
+        String key = variantKey(baseKey, width, format.equals(sourceFormat) ? null : format);
+        responseCache.put(key, new CacheEntry(original.getStatusCode(), headers, Buffer.buffer(encoded), remainingTtl));
+        return true;
+    }
+
+    private BufferedImage decode(byte[] source) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(source))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                // Guard against decompression bombs before allocating pixels
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) {
+                    logger.debug("Image too large to optimize: {}x{}", reader.getWidth(0), reader.getHeight(0));
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scale(BufferedImage source, int width) {
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage scaled = new BufferedImage(width, height, type);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+
+    private byte[] encode(BufferedImage image, String format) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            return null;
+        }
+
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                String[] types = param.getCompressionTypes();
+                if (types != null && types.length > 0) {
+                    param.setCompressionType(types[0]);
+                }
+                param.setCompressionQuality(quality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private int bucketFor(int requested) {
+        for (int width : widthBuckets) {
+            if (width >= requested) {
+                return width;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Add a token to the origin's Vary header, keeping the tokens already listed.
+     */
+    static String addVaryToken(String vary, String token) {
+        if (vary == null || vary.isBlank()) {
+            return token;
+        }
+        for (String existing : vary.split(",")) {
+            String trimmed = existing.trim();
+            if (trimmed.equals("*") || trimmed.equalsIgnoreCase(token)) {
+                return vary;
+            }
+        }
+        return vary + ", " + token;
+    }
+
+    private static String variantKey(String baseKey, int width, String format) {
+        return baseKey + VARIANT_SEPARATOR + "w=" + width + ",fmt=" + (format == null ? "src" : format);
+    }
+
+    private static String variantETag(String etag, int width, String format) {
+        boolean weak = etag.startsWith("W/");
+        String value = weak ? etag.substring(2) : etag;
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        return (weak ? "W/" : "") + "\"" + value + "-w" + width + "-" + format + "\"";
+    }
+
+    private static String formatFor(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+
+        String type = contentType.toLowerCase();
+        if (type.startsWith("image/jpeg") || type.startsWith("image/jpg")) {
+            return "jpeg";
+        }
+        if (type.startsWith("image/png")) {
+            return "png";
+        }
+        if (type.startsWith("image/webp") && ImageIO.getImageReadersByFormatName("webp").hasNext()) {
+            return "webp";
+        }
+        return null;
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
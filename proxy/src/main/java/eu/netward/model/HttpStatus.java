@@ -2,8 +2,11 @@ package eu.netward.model;
 
 public enum HttpStatus {
     NOT_FOUND(404, "Not Found"),
+    REQUEST_TIMEOUT(408, "Request Timeout"),
+    PAYLOAD_TOO_LARGE(413, "Payload Too Large"),
     BAD_GATEWAY(502, "Bad Gateway"),
     SERVICE_UNAVAILABLE(503, "Service Unavailable"),
+    GATEWAY_TIMEOUT(504, "Gateway Timeout"),
     FORBIDDEN(403, "Forbidden");
 
     private final int code;
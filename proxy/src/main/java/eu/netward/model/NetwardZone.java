@@ -7,4 +7,8 @@ public class NetwardZone {
     private int id;
     private String record;
     private String target;
+    private boolean imageOptimization;
+    // Per-zone TTL overrides in seconds, null uses the global default and 0 disables
+    private Integer negativeTtl;
+    private Integer redirectTtl;
 }
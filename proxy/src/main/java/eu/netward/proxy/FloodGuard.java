@@ -0,0 +1,234 @@
+package eu.netward.proxy;
+
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.netward.util.HeavyHitters;
+
+/**
+ * Layer-7 flood mitigation. Request rates per client IP, URI (host and path) and
+ * rejected Host header are tracked in fixed-memory heavy-hitter sketches; keys that exceed
+ * their rate within a window are escalated to a connection-close fast path for
+ * a cool-down period, so floods no longer render status pages or fill the
+ * host cache one request at a time. Trusted clients (tier nodes, proxies in
+ * front of netward) carry many users' traffic and are not rated by address.
+ */
+public class FloodGuard {
+
+    public enum Dimension {
+        CLIENT_IP, HOST, URI
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(FloodGuard.class);
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 16384;
+    private static final int TOP_K = 16;
+    private static final int MAX_BLOCKED = 10000;
+
+    private final boolean enabled;
+    private final long windowMillis;
+    private final long cooldownMillis;
+    private final Predicate<String> trustedClients;
+    private final Map<Dimension, HeavyHitters> sketches = new EnumMap<>(Dimension.class);
+    private final Map<Dimension, Integer> limits = new EnumMap<>(Dimension.class);
+    private final Map<Dimension, ConcurrentHashMap<String, Long>> blocked = new EnumMap<>(Dimension.class);
+
+    /**
+     * @param ipRate requests per second per client IP, 0 disables escalation
+     * @param hostRate rejected requests per second per Host header, 0 disables escalation
+     * @param uriRate requests per second per URI, 0 disables escalation
+     * @param trustedClients client addresses exempt from the per-IP rate
+     */
+    public FloodGuard(boolean enabled, long windowSeconds, long cooldownSeconds, int ipRate, int hostRate, int uriRate,
+                      Predicate<String> trustedClients) {
+        this.enabled = enabled;
+        this.windowMillis = windowSeconds * 1000;
+        this.cooldownMillis = cooldownSeconds * 1000;
+        this.trustedClients = trustedClients;
+
+        limits.put(Dimension.CLIENT_IP, (int) (ipRate * windowSeconds));
+        limits.put(Dimension.HOST, (int) (hostRate * windowSeconds));
+        limits.put(Dimension.URI, (int) (uriRate * windowSeconds));
+        for (Dimension dimension : Dimension.values()) {
+            sketches.put(dimension, new HeavyHitters(SKETCH_DEPTH, SKETCH_WIDTH, TOP_K));
+            blocked.put(dimension, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Ring members and the addresses in NETWARD_TRUSTED_PROXIES are exempt from the per-IP rate.
+     */
+    public static FloodGuard fromEnv(ParentRing parentRing) {
+        Set<String> trustedProxies = new HashSet<>();
+        for (String address : System.getenv().getOrDefault("NETWARD_TRUSTED_PROXIES", "").split(",")) {
+            if (!address.isBlank()) {
+                trustedProxies.add(address.trim());
+            }
+        }
+
+        return new FloodGuard(
+            Boolean.parseBoolean(System.getenv().getOrDefault("NETWARD_FLOOD_GUARD", "true")),
+            Long.parseLong(System.getenv().getOrDefault("NETWARD_FLOOD_WINDOW", "10")),
+            Long.parseLong(System.getenv().getOrDefault("NETWARD_FLOOD_COOLDOWN", "60")),
+            Integer.parseInt(System.getenv().getOrDefault("NETWARD_FLOOD_IP_RATE", "200")),
+            Integer.parseInt(System.getenv().getOrDefault("NETWARD_FLOOD_HOST_RATE", "50")),
+            Integer.parseInt(System.getenv().getOrDefault("NETWARD_FLOOD_URI_RATE", "0")),
+            address -> trustedProxies.contains(address) || parentRing.isParentAddress(address));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * Check whether any part of the request is currently escalated.
+     */
+    public boolean isBlocked(String clientIp, String host, String uri) {
+        if (!enabled) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        return isBlocked(Dimension.CLIENT_IP, rated(clientIp), now)
+            || isBlocked(Dimension.HOST, hostKey(host), now)
+            || (limits.get(Dimension.URI) > 0 && isBlocked(Dimension.URI, uriKey(host, uri), now));
+    }
+
+    /**
+     * Count a request that passed the fast path.
+     */
+    public void recordRequest(String clientIp, String host, String uri) {
+        if (!enabled) {
+            return;
+        }
+        record(Dimension.CLIENT_IP, rated(clientIp));
+        record(Dimension.URI, uriKey(host, uri));
+    }
+
+    /**
+     * Count a request turned away for its Host header (direct IP access or unknown host).
+     */
+    public void recordRejected(String host) {
+        if (!enabled) {
+            return;
+        }
+        record(Dimension.HOST, hostKey(host));
+    }
+
+    /**
+     * Heaviest keys of the current window, highest count first.
+     */
+    public List<HeavyHitters.Entry> getTopK(Dimension dimension) {
+        return sketches.get(dimension).topK();
+    }
+
+    public int getBlockedCount(Dimension dimension) {
+        return blocked.get(dimension).size();
+    }
+
+    /**
+     * Close the current window and drop expired escalations. Called periodically.
+     */
+    public void rotate() {
+        long now = System.currentTimeMillis();
+        boolean underAttack = false;
+        for (Dimension dimension : Dimension.values()) {
+            sketches.get(dimension).rotate();
+            blocked.get(dimension).values().removeIf(until -> until <= now);
+            underAttack |= !blocked.get(dimension).isEmpty();
+        }
+
+        // Only worth the log lines while something is escalated
+        if (underAttack) {
+            logStats();
+        }
+    }
+
+    public void logStats() {
+        for (Dimension dimension : Dimension.values()) {
+            List<HeavyHitters.Entry> top = sketches.get(dimension).lastWindowTopK();
+            logger.info("Flood guard {} - Blocked: {}, Top: {}", dimension, blocked.get(dimension).size(),
+                top.subList(0, Math.min(5, top.size())));
+        }
+    }
+
+    /**
+     * The client address to rate, null for trusted clients.
+     */
+    private String rated(String clientIp) {
+        return clientIp == null || trustedClients.test(clientIp) ? null : clientIp;
+    }
+
+    /**
+     * Requests without a Host header share one key, so they can reach the fast path as well.
+     */
+    private static String hostKey(String host) {
+        return host == null ? "" : host.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Host and path without the query string: one tenant's hot path never blocks
+     * another's, and random query strings do not dodge the limit.
+     */
+    private static String uriKey(String host, String uri) {
+        if (uri == null) {
+            return null;
+        }
+        int queryIndex = uri.indexOf('?');
+        return hostKey(host) + (queryIndex == -1 ? uri : uri.substring(0, queryIndex));
+    }
+
+    private void record(Dimension dimension, String key) {
+        if (key == null) {
+            return;
+        }
+
+        int count = sketches.get(dimension).add(key);
+        int limit = limits.get(dimension);
+        if (limit > 0 && count > limit) {
+            escalate(dimension, key);
+        }
+    }
+
+    private void escalate(Dimension dimension, String key) {
+        ConcurrentHashMap<String, Long> entries = blocked.get(dimension);
+        // Keep memory bounded even if the flood is spread over many keys
+        if (entries.size() >= MAX_BLOCKED) {
+            return;
+        }
+        if (entries.put(key, System.currentTimeMillis() + cooldownMillis) == null) {
+            logger.warn("Flood guard escalated {} {} for {} s", dimension, key, cooldownMillis / 1000);
+        }
+    }
+
+    private boolean isBlocked(Dimension dimension, String key, long now) {
+        if (key == null) {
+            return false;
+        }
+        ConcurrentHashMap<String, Long> entries = blocked.get(dimension);
+        if (entries.isEmpty()) {
+            return false;
+        }
+        Long until = entries.get(key);
+        if (until == null) {
+            return false;
+        }
+        if (until <= now) {
+            entries.remove(key, until);
+            return false;
+        }
+        return true;
+    }
+}
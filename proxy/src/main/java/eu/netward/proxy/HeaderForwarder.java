@@ -0,0 +1,100 @@
+package eu.netward.proxy;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+
+/**
+ * Copies end-to-end headers between the client and upstream connections,
+ * dropping hop-by-hop headers (RFC 9110 section 7.6.1) on the way.
+ */
+public class HeaderForwarder {
+
+    private static final CharSequence X_REAL_IP = HttpHeaders.createOptimized("X-Real-IP");
+    private static final CharSequence X_FORWARDED_FOR = HttpHeaders.createOptimized("X-Forwarded-For");
+    private static final CharSequence X_FORWARDED_PROTO = HttpHeaders.createOptimized("X-Forwarded-Proto");
+
+    private static final Set<String> HOP_BY_HOP = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        HOP_BY_HOP.addAll(Set.of(
+            "Connection",
+            "Keep-Alive",
+            "Proxy-Connection",
+            "Proxy-Authenticate",
+            "Proxy-Authorization",
+            "TE",
+            "Trailer",
+            "Transfer-Encoding",
+            "Upgrade",
+            ParentRing.TIER_HEADER
+        ));
+    }
+
+    /**
+     * Copy the client request headers to an upstream request, rewriting Host and
+     * appending the client address to X-Forwarded-For.
+     *
+     * @param verifiedTierHop the request came from a verified ring member, whose
+     *                        X-Real-IP and X-Forwarded-Proto are kept
+     */
+    public static void forwardRequestHeaders(HttpServerRequest req, MultiMap target, String hostHeader, boolean verifiedTierHop) {
+        MultiMap source = req.headers();
+        copyEndToEnd(source, target);
+
+        String clientIp = req.remoteAddress().host();
+        String forwardedFor = source.get(X_FORWARDED_FOR);
+        target.set(HttpHeaders.HOST, hostHeader);
+        target.set(X_FORWARDED_FOR, forwardedFor == null ? clientIp : forwardedFor + ", " + clientIp);
+
+        // Requests from an edge node already carry the original client's values,
+        // anyone else's are overwritten so the origin never sees a spoofed address
+        if (!verifiedTierHop || !target.contains(X_REAL_IP)) {
+            target.set(X_REAL_IP, clientIp);
+        }
+        if (!verifiedTierHop || !target.contains(X_FORWARDED_PROTO)) {
+            target.set(X_FORWARDED_PROTO, req.scheme());
+        }
+    }
+
+    /**
+     * Copy upstream response headers to the client response.
+     */
+    public static void forwardResponseHeaders(MultiMap source, MultiMap target) {
+        copyEndToEnd(source, target);
+    }
+
+    private static void copyEndToEnd(MultiMap source, MultiMap target) {
+        Set<String> connectionTokens = connectionTokens(source);
+        for (Map.Entry<String, String> header : source) {
+            String name = header.getKey();
+            if (HOP_BY_HOP.contains(name) || (connectionTokens != null && connectionTokens.contains(name))) {
+                continue;
+            }
+            target.add(name, header.getValue());
+        }
+    }
+
+    /**
+     * Headers listed in Connection are hop-by-hop as well.
+     */
+    private static Set<String> connectionTokens(MultiMap headers) {
+        String connection = headers.get(HttpHeaders.CONNECTION);
+        if (connection == null) {
+            return null;
+        }
+
+        Set<String> tokens = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (String token : connection.split(",")) {
+            String trimmed = token.trim();
+            if (!trimmed.isEmpty()) {
+                tokens.add(trimmed);
+            }
+        }
+        return tokens;
+    }
+}
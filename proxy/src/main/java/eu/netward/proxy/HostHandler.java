@@ -1,6 +1,8 @@
 package eu.netward.proxy;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.concurrent.TimeUnit;
 
@@ -12,6 +14,7 @@ import com.github.benmanes.caffeine.cache.Caffeine;
 
 import eu.netward.App;
 import eu.netward.model.NetwardZone;
+import io.vertx.core.Future;
 
 public class HostHandler {
 
@@ -22,12 +25,36 @@ public class HostHandler {
     private static final NetwardZone NOT_FOUND = new NetwardZone();
 
     public HostHandler() {
+        // Bounded, so floods of random Host headers cannot grow it without limit
         this.hostCache = Caffeine.newBuilder()
+                .maximumSize(100_000)
                 .expireAfterWrite(10, TimeUnit.MINUTES)
                 .build();
     }
 
-    public NetwardZone getZoneForHost(String host) {
+    /**
+     * Resolve the zone without blocking the caller. Cached hosts complete immediately,
+     * everything else is looked up on the blocking executor. Completes with null for
+     * unknown hosts and fails on database errors.
+     */
+    public Future<NetwardZone> getZoneForHostAsync(String host) {
+        if(host == null || host.isEmpty()) {
+            return Future.succeededFuture(null);
+        }
+
+        NetwardZone cached = hostCache.getIfPresent(host.contains(":") ? host.split(":")[0] : host);
+        if(cached != null) {
+            return Future.succeededFuture(cached == NOT_FOUND ? null : cached);
+        }
+
+        return App.blockingExecutor.executeBlocking(() -> lookupZone(host));
+    }
+
+    /**
+     * Look the zone up in the cache or database. Database errors are thrown rather than
+     * reported as an unknown host, so they are not cached or shown as such.
+     */
+    private NetwardZone lookupZone(String host) throws SQLException {
         long startTime = System.currentTimeMillis();
 
         if(host == null || host.isEmpty()) {
@@ -46,29 +73,29 @@ public class HostHandler {
         }
 
         NetwardZone newZone = new NetwardZone();
-        try(Connection sql =  App.dataSource.getConnection()) {
-            var ps = sql.prepareStatement("SELECT * FROM `proxy_zones` WHERE `record` = ? LIMIT 1");     
+        try(Connection sql = App.dataSource.getConnection();
+            PreparedStatement ps = sql.prepareStatement("SELECT * FROM `proxy_zones` WHERE `record` = ? LIMIT 1")) {
             ps.setString(1, host);
 
-            var rs = ps.executeQuery();
-            if(rs.next()) {
-                newZone.setId(rs.getInt("id"));
-                newZone.setRecord(rs.getString("record"));
-                newZone.setTarget(rs.getString("target"));
-
-                hostCache.put(host, newZone);
-                logger.debug("Fetched zone for host: {}, took {} ms", host, System.currentTimeMillis() - startTime);
-                return newZone;
-            } else {
-                logger.warn("No zone found for host {}, in {}ms", host, System.currentTimeMillis() - startTime);
-                // Cache the NOT_FOUND sentinel to avoid repeated DB queries
-                hostCache.put(host, NOT_FOUND);
-                return null;
-            }
+            try(ResultSet rs = ps.executeQuery()) {
+                if(rs.next()) {
+                    newZone.setId(rs.getInt("id"));
+                    newZone.setRecord(rs.getString("record"));
+                    newZone.setTarget(rs.getString("target"));
+                    newZone.setImageOptimization(rs.getBoolean("image_optimization"));
+                    newZone.setNegativeTtl(rs.getObject("negative_ttl", Integer.class));
+                    newZone.setRedirectTtl(rs.getObject("redirect_ttl", Integer.class));
 
-        } catch (SQLException e) {
-            logger.error("Database error while fetching zone for host: " + host, e);
-            return null;
+                    hostCache.put(host, newZone);
+                    logger.debug("Fetched zone for host: {}, took {} ms", host, System.currentTimeMillis() - startTime);
+                    return newZone;
+                } else {
+                    logger.warn("No zone found for host {}, in {}ms", host, System.currentTimeMillis() - startTime);
+                    // Cache the NOT_FOUND sentinel to avoid repeated DB queries
+                    hostCache.put(host, NOT_FOUND);
+                    return null;
+                }
+            }
         }
     }
     
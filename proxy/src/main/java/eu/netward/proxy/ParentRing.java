@@ -0,0 +1,204 @@
+package eu.netward.proxy;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Consistent-hash ring of parent netward nodes used for origin shielding.
+ * Every cache key is owned by exactly one node of the cluster; edges route
+ * misses to that owner so the origin sees roughly one fetch per object.
+ */
+public class ParentRing {
+
+    /** Header marking a request that was already routed through the tier, only honoured from parents. */
+    public static final String TIER_HEADER = "NW-Tier-Hop";
+
+    private static final Logger logger = LoggerFactory.getLogger(ParentRing.class);
+    private static final int VIRTUAL_NODES = 160;
+
+    private final TreeMap<Long, Parent> ring = new TreeMap<>();
+    private final List<Parent> parents = new ArrayList<>();
+    private final String self;
+    private final long downMillis;
+    private volatile Set<String> parentAddresses = Set.of();
+
+    public ParentRing(String parentList, String self, long downSeconds) {
+        this.self = self;
+        this.downMillis = downSeconds * 1000;
+
+        if (parentList == null || parentList.isBlank()) {
+            return;
+        }
+
+        for (String entry : parentList.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+
+            String host = trimmed;
+            int port = 8080;
+            int colon = trimmed.lastIndexOf(':');
+            if (colon != -1) {
+                host = trimmed.substring(0, colon);
+                try {
+                    port = Integer.parseInt(trimmed.substring(colon + 1));
+                } catch (NumberFormatException e) {
+                    logger.warn("Ignoring parent with invalid port: {}", trimmed);
+                    continue;
+                }
+            }
+
+            Parent parent = new Parent(host, port);
+            parents.add(parent);
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash(parent.getId() + "#" + i), parent);
+            }
+        }
+
+        resolveAddresses();
+        logger.info("✓ Parent tier enabled with {} nodes (self: {})", parents.size(), self);
+    }
+
+    public static ParentRing fromEnv() {
+        return new ParentRing(
+            System.getenv().getOrDefault("NETWARD_PARENTS", ""),
+            System.getenv().getOrDefault("NETWARD_TIER_SELF", "NONE"),
+            Long.parseLong(System.getenv().getOrDefault("NETWARD_PARENT_DOWN_SECONDS", "30")));
+    }
+
+    public boolean isEnabled() {
+        return !ring.isEmpty();
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    public List<Parent> getParents() {
+        return Collections.unmodifiableList(parents);
+    }
+
+    /**
+     * Select the parent owning the given cache key.
+     * Returns null when this node owns the key itself or no parent is healthy,
+     * in which case the caller should go straight to the origin.
+     */
+    public Parent select(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        Map.Entry<Long, Parent> start = ring.ceilingEntry(hash(key));
+        if (start == null) {
+            start = ring.firstEntry();
+        }
+
+        // Walk clockwise past parents that are marked down
+        Map.Entry<Long, Parent> current = start;
+        for (int i = 0; i < ring.size(); i++) {
+            Parent parent = current.getValue();
+            if (parent.getId().equals(self)) {
+                return null;
+            }
+            if (parent.isUp(now)) {
+                return parent;
+            }
+
+            current = ring.higherEntry(current.getKey());
+            if (current == null) {
+                current = ring.firstEntry();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Whether a connection from this address comes from a ring member, i.e. may carry {@link #TIER_HEADER}.
+     */
+    public boolean isParentAddress(String address) {
+        return address != null && parentAddresses.contains(address);
+    }
+
+    /**
+     * Resolve the parent host names to the addresses their connections come from.
+     * Names that do not resolve yet (nodes still starting) are picked up on the next refresh.
+     */
+    public void resolveAddresses() {
+        Set<String> addresses = new HashSet<>();
+        for (Parent parent : parents) {
+            addresses.add(parent.getHost());
+            try {
+                for (InetAddress address : InetAddress.getAllByName(parent.getHost())) {
+                    addresses.add(address.getHostAddress());
+                }
+            } catch (UnknownHostException e) {
+                logger.warn("Could not resolve parent {}: {}", parent.getId(), e.getMessage());
+            }
+        }
+        parentAddresses = Set.copyOf(addresses);
+    }
+
+    public void markDown(Parent parent) {
+        parent.downUntil = System.currentTimeMillis() + downMillis;
+        logger.warn("Parent {} marked down for {} ms", parent.getId(), downMillis);
+    }
+
+    private static long hash(String value) {
+        // FNV-1a followed by a murmur3 finalizer for better ring spread
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public static class Parent {
+
+        private final String host;
+        private final int port;
+        private final String id;
+        private volatile long downUntil;
+
+        Parent(String host, int port) {
+            this.host = host;
+            this.port = port;
+            this.id = host + ":" + port;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public boolean isUp(long now) {
+            return now >= downUntil;
+        }
+    }
+}
@@ -1,19 +1,34 @@
 package eu.netward.proxy;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import eu.netward.cache.CacheEntry;
+import eu.netward.cache.CachedHeaders;
 import eu.netward.cache.CachePolicy;
 import eu.netward.cache.ResponseCache;
+import eu.netward.http.RequestBodyBuffer;
+import eu.netward.http.RequestBodyBuffer.BodyRejectedException;
+import eu.netward.http.RequestBodyBuffer.BufferedBody;
+import eu.netward.image.ImageOptimizer;
 import eu.netward.model.HttpStatus;
+import eu.netward.model.NetwardZone;
 import eu.netward.util.RequestIdGenerator;
 import eu.netward.web.StatusTemplateHandler;
 import gg.jte.ContentType;
 import gg.jte.TemplateEngine;
+import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.net.NetSocket;
 
 public class ProxyHandler {
 
@@ -24,8 +39,15 @@ public class ProxyHandler {
     private final HostHandler hostHandler;
     private final ResponseCache responseCache;
     private final CachePolicy cachePolicy;
+    private final ParentRing parentRing;
+    private final long parentTimeoutMillis;
+    private final long parentResponseTimeoutMillis;
+    private final ImageOptimizer imageOptimizer;
+    private final RequestBodyBuffer requestBodies;
+    private final FloodGuard floodGuard;
+    private final UpgradeTunnel upgradeTunnel;
 
-    public ProxyHandler() {
+    public ProxyHandler(Vertx vertx) {
         this.templateEngine = TemplateEngine.createPrecompiled(ContentType.Html);
         this.netwardPrefix = System.getenv().getOrDefault("NETWARD_PREFIX", "NONE");
         this.netwardPublicIp = System.getenv().getOrDefault("NETWARD_PUBLIC_IP", "NONE");
@@ -34,25 +56,89 @@ public class ProxyHandler {
         // Initialize cache with 512MB max size and 4 hour max TTL
         this.responseCache = new ResponseCache(512 * 1024 * 1024, 4 * 3600);
         
-        // Initialize cache policy with 4 hour max TTL and 10MB max item size
-        this.cachePolicy = new CachePolicy(4 * 3600, 10 * 1024 * 1024);
+        // Initialize cache policy with 4 hour max TTL and 10MB max item size,
+        // plus short-lived negative (404/410) and redirect (301/308) entries
+        this.cachePolicy = new CachePolicy(4 * 3600, 10 * 1024 * 1024,
+            Long.parseLong(System.getenv().getOrDefault("NETWARD_NEGATIVE_TTL", "60")),
+            Long.parseLong(System.getenv().getOrDefault("NETWARD_REDIRECT_TTL", "300")));
+
+        // Optional origin shielding through a consistent-hashed parent tier
+        this.parentRing = ParentRing.fromEnv();
+        this.parentTimeoutMillis = Long.parseLong(System.getenv().getOrDefault("NETWARD_PARENT_TIMEOUT_MS", "5000"));
+        // A parent sends nothing for a cacheable miss until it has the whole origin body
+        this.parentResponseTimeoutMillis = Long.parseLong(System.getenv().getOrDefault("NETWARD_PARENT_RESPONSE_TIMEOUT_MS", "60000"));
+        if (parentRing.isEnabled()) {
+            // Parent addresses may change when tier nodes are redeployed
+            vertx.setPeriodic(60_000, id -> vertx.executeBlocking(() -> {
+                parentRing.resolveAddresses();
+                return null;
+            }));
+        }
+
+        // Image variants for zones with image optimization enabled
+        this.imageOptimizer = ImageOptimizer.fromEnv(responseCache);
+
+        // Request body size limits and optional upload buffering
+        this.requestBodies = RequestBodyBuffer.fromEnv(vertx);
+
+        // Heavy-hitter tracking per client IP, Host and URI with a close-connection fast path
+        this.floodGuard = FloodGuard.fromEnv(parentRing);
+        if (floodGuard.isEnabled()) {
+            vertx.setPeriodic(floodGuard.getWindowMillis(), id -> floodGuard.rotate());
+        }
+
+        // WebSocket / Upgrade tunnels on their own connections
+        this.upgradeTunnel = UpgradeTunnel.fromEnv(vertx);
     }
 
-    public void handleProxy(HttpServerRequest req, HttpClient client) {
+    public void handleProxy(HttpServerRequest req, HttpClient client, HttpClient tunnelClient) {
         String hostHeader = req.getHeader("host");
+        String clientIp = req.remoteAddress().host();
+
+        // Only ring members may mark a request as a tier hop, anyone else would bypass the shield
+        if (req.headers().contains(ParentRing.TIER_HEADER) && !parentRing.isParentAddress(clientIp)) {
+            req.headers().remove(ParentRing.TIER_HEADER);
+        }
+
+        // Escalated offenders get no response at all, just a closed connection
+        if (floodGuard.isBlocked(clientIp, hostHeader, req.uri())) {
+            req.connection().close();
+            return;
+        }
+        floodGuard.recordRequest(clientIp, hostHeader, req.uri());
+
         String requestId = RequestIdGenerator.generate(netwardPrefix);
 
         if(hostHeader == null || hostHeader.equals(netwardPublicIp)) {
             logger.warn("Blocked direct ip access: " + hostHeader);
+            floodGuard.recordRejected(hostHeader);
 
             StatusTemplateHandler.handle(templateEngine, req, HttpStatus.FORBIDDEN, "Direct IP access is not allowed.", requestId);
             return;
         }
 
-        var zone = hostHandler.getZoneForHost(hostHeader);
+        if (requestBodies.exceedsLimit(req)) {
+            logger.warn("Rejected oversized request body for host: " + hostHeader);
+
+            rejectRequest(req, HttpStatus.PAYLOAD_TOO_LARGE, "The request body is too large.", requestId);
+            return;
+        }
+
+        // Zone lookups may hit the database, so they run on the blocking executor
+        hostHandler.getZoneForHostAsync(hostHeader)
+            .onSuccess(zone -> handleZone(req, client, tunnelClient, zone, hostHeader, requestId))
+            .onFailure(err -> {
+                logger.error("Zone lookup failed for host: " + hostHeader, err);
+                StatusTemplateHandler.handle(templateEngine, req, HttpStatus.SERVICE_UNAVAILABLE, "The zone lookup failed.", requestId);
+            });
+    }
 
+    private void handleZone(HttpServerRequest req, HttpClient client, HttpClient tunnelClient, NetwardZone zone,
+                            String hostHeader, String requestId) {
         if (zone == null) {
             logger.warn("Blocked request to unauthorized host: " + hostHeader);
+            // Only unknown hosts get here, failed lookups end in the 503 branch and are not counted
+            floodGuard.recordRejected(hostHeader);
 
             StatusTemplateHandler.handle(templateEngine, req, HttpStatus.FORBIDDEN, "This host is not part of netward network.", requestId);
             return;
@@ -60,21 +146,39 @@ public class ProxyHandler {
 
         String targetHost = zone.getTarget();
         int targetPort = 80;
+
+        // WebSocket and other protocol upgrades bypass the cache and the shared pool
+        if (UpgradeTunnel.isUpgrade(req)) {
+            proxyUpgrade(req, tunnelClient, zone, targetHost, targetPort, hostHeader, requestId);
+            return;
+        }
         
-        // Build cache key
-        String cacheKey = cachePolicy.buildCacheKey(hostHeader, req.uri());
+        // Build cache key (image variants of one URI share the same base key). The width parameter
+        // is netward's own, upstreams get the same URI so their answer matches the key
+        String uri = zone.isImageOptimization() ? ImageOptimizer.stripWidthParam(req.uri()) : req.uri();
+        String cacheKey = cachePolicy.buildCacheKey(hostHeader, uri);
         
         // Check if request has cache-busting headers
         if (cachePolicy.hasCacheBustingHeaders(req)) {
             logger.debug("Cache-busting headers detected, bypassing cache for: {}", cacheKey);
-            proxyRequest(req, client, targetHost, targetPort, hostHeader, requestId, null);
+            proxyRequest(req, client, zone, targetHost, targetPort, uri, hostHeader, requestId, null);
             return;
         }
         
         // Try to serve from cache (only for GET/HEAD)
         String method = req.method().name();
         if ("GET".equals(method) || "HEAD".equals(method)) {
-            CacheEntry cached = responseCache.get(cacheKey);
+            CacheEntry cached;
+            
+            // Prefer an optimized image variant; tier hops always get the original
+            if (zone.isImageOptimization() && !isTierHop(req)) {
+                List<String> keys = new ArrayList<>(imageOptimizer.candidateKeys(req, cacheKey));
+                keys.add(cacheKey);
+                cached = responseCache.get(keys);
+            } else {
+                cached = responseCache.get(cacheKey);
+            }
+            
             if (cached != null) {
                 // Handle conditional requests (If-None-Match with ETag)
                 String ifNoneMatch = req.getHeader("If-None-Match");
@@ -96,86 +200,127 @@ public class ProxyHandler {
                 logger.info("Cache HIT: {} (age: {}s)", cacheKey, cached.getAgeSeconds());
                 HttpServerResponse res = req.response();
                 res.setStatusCode(cached.getStatusCode());
-                res.headers().setAll(cached.getHeaders());
+                cached.getHeaders().writeTo(res.headers());
                 res.headers().set("NW-RequestID", requestId);
                 res.headers().set("X-Cache", "HIT");
                 res.headers().set("Age", String.valueOf(cached.getAgeSeconds()));
-                res.headers().set("Cache-Control", "public, max-age=" + cached.getTtlSeconds());
+                // Remaining lifetime only, so a downstream tier does not restart the full TTL
+                res.headers().set("Cache-Control", "public, max-age=" + Math.max(0, cached.getTtlSeconds() - cached.getAgeSeconds()));
                 res.end(cached.getBody());
                 return;
             }
         }
         
+        // Cache miss - route to the parent owning this key when tiering is enabled.
+        // Requests that already came through the tier always go to the origin.
+        if (("GET".equals(method) || "HEAD".equals(method))
+                && parentRing.isEnabled() && !isTierHop(req)) {
+            ParentRing.Parent parent = parentRing.select(cacheKey);
+            if (parent != null) {
+                proxyViaParent(req, client, zone, parent, targetHost, targetPort, uri, hostHeader, requestId, cacheKey);
+                return;
+            }
+        }
+
         // Cache miss - proxy the request
-        proxyRequest(req, client, targetHost, targetPort, hostHeader, requestId, cacheKey);
+        proxyRequest(req, client, zone, targetHost, targetPort, uri, hostHeader, requestId, cacheKey);
     }
-    
-    private void proxyRequest(HttpServerRequest req, HttpClient client, String targetHost, 
-                              int targetPort, String hostHeader, String requestId, String cacheKey) {
+
+    /**
+     * Fetch a cache miss from the parent node owning the key. Only a parent that cannot
+     * be reached within the short connect timeout is marked down and replaced by the
+     * origin; once connected, the parent gets the longer response timeout, as it may be
+     * fetching a slow origin itself. The GET/HEAD body is read up front so the request
+     * can be replayed against the origin.
+     */
+    private void proxyViaParent(HttpServerRequest req, HttpClient client, NetwardZone zone, ParentRing.Parent parent, String targetHost,
+                                int targetPort, String uri, String hostHeader, String requestId, String cacheKey) {
+        long startTime = System.currentTimeMillis();
+
+        logger.info("Proxying request: " + req.method() + " " + uri + " from " + hostHeader + " to parent " + parent.getId());
+
+        requestBodies.read(req)
+            .onSuccess(body -> {
+                RequestOptions options = new RequestOptions()
+                    .setMethod(req.method())
+                    .setHost(parent.getHost())
+                    .setPort(parent.getPort())
+                    .setURI(uri)
+                    .setConnectTimeout(parentTimeoutMillis)
+                    .setIdleTimeout(parentResponseTimeoutMillis);
+
+                client.request(options)
+                    .onSuccess(parentReq -> {
+                        HeaderForwarder.forwardRequestHeaders(req, parentReq.headers(), hostHeader, isTierHop(req));
+                        parentReq.headers().set(ParentRing.TIER_HEADER, parentRing.getSelf());
+                        body.sendTo(parentReq);
+
+                        parentReq.response()
+                            .onSuccess(parentRes -> {
+                                logger.info("Received parent response: " + parentRes.statusCode() + " in " + (System.currentTimeMillis() - startTime) + " ms");
+                                relayResponse(req, parentRes, zone, requestId, cacheKey, startTime);
+                            })
+                            .onFailure(err -> {
+                                long duration = System.currentTimeMillis() - startTime;
+                                if (err instanceof TimeoutException) {
+                                    // The parent is still fetching, asking the origin as well would double its load
+                                    logger.warn("Parent {} did not respond within {} ms", parent.getId(), duration);
+                                    if (!req.response().ended()) {
+                                        StatusTemplateHandler.handle(templateEngine, req, HttpStatus.GATEWAY_TIMEOUT, "The upstream server did not respond in time", requestId);
+                                    }
+                                    return;
+                                }
+
+                                // Connection lost before a response, a parent that went away fails its next connect
+                                logger.warn("Parent {} failed after {} ms: {}, falling back to origin", parent.getId(), duration, err.getMessage());
+                                proxyRequest(req, client, zone, targetHost, targetPort, uri, hostHeader, requestId, cacheKey, body);
+                            });
+                    })
+                    .onFailure(err -> {
+                        logger.warn("Parent {} unreachable after {} ms: {}, falling back to origin",
+                            parent.getId(), System.currentTimeMillis() - startTime, err.getMessage());
+                        parentRing.markDown(parent);
+                        proxyRequest(req, client, zone, targetHost, targetPort, uri, hostHeader, requestId, cacheKey, body);
+                    });
+            })
+            .onFailure(err -> handleBodyFailure(req, err, requestId));
+    }
+
+    private void proxyRequest(HttpServerRequest req, HttpClient client, NetwardZone zone, String targetHost, 
+                              int targetPort, String uri, String hostHeader, String requestId, String cacheKey) {
+        if (requestBodies.isEnabled() && RequestBodyBuffer.hasBody(req)) {
+            // Receive the whole upload before taking an upstream connection from the pool
+            requestBodies.read(req)
+                .onSuccess(body -> proxyRequest(req, client, zone, targetHost, targetPort, uri, hostHeader, requestId, cacheKey, body))
+                .onFailure(err -> handleBodyFailure(req, err, requestId));
+            return;
+        }
+
+        proxyRequest(req, client, zone, targetHost, targetPort, uri, hostHeader, requestId, cacheKey, null);
+    }
+
+    /**
+     * Proxy the request to the origin. When {@code body} is null the request body is
+     * streamed from the client, otherwise the already-read body is sent as is.
+     */
+    private void proxyRequest(HttpServerRequest req, HttpClient client, NetwardZone zone, String targetHost, 
+                              int targetPort, String uri, String hostHeader, String requestId, String cacheKey, BufferedBody body) {
         long startTime = System.currentTimeMillis();
 
-        logger.info("Proxying request: " + req.method() + " " + req.uri() + " from " + hostHeader + " to " + targetHost + ":" + targetPort);
+        logger.info("Proxying request: " + req.method() + " " + uri + " from " + hostHeader + " to " + targetHost + ":" + targetPort);
 
         // Create the proxy request
-        client.request(req.method(), targetPort, targetHost, req.uri())
+        client.request(req.method(), targetPort, targetHost, uri)
             .onSuccess(proxyReq -> {
                 // Set headers
-                proxyReq.headers().setAll(req.headers());
-                proxyReq.headers().set("Host", hostHeader);
-                proxyReq.headers().set("X-Real-IP", req.remoteAddress().host());
-                proxyReq.headers().set("X-Forwarded-For", req.remoteAddress().host());
-                proxyReq.headers().set("X-Forwarded-Proto", req.scheme());
+                HeaderForwarder.forwardRequestHeaders(req, proxyReq.headers(), hostHeader, isTierHop(req));
                 
                 // Setup response handler FIRST
                 proxyReq.response()
                     .onSuccess(proxyRes -> {
                         long duration = System.currentTimeMillis() - startTime;
                         logger.info("Received response: " + proxyRes.statusCode() + " in " + duration + " ms");
-                        
-                        HttpServerResponse clientRes = req.response();
-                        clientRes.setStatusCode(proxyRes.statusCode());
-                        clientRes.headers().setAll(proxyRes.headers());
-                        clientRes.headers().set("NW-RequestID", requestId);
-                        clientRes.headers().set("X-Cache", "MISS");
-                        
-                        // Determine if response should be cached
-                        boolean shouldCache = cacheKey != null && cachePolicy.isCacheable(req, proxyRes);
-                        
-                        if (shouldCache) {
-                            // Buffer the response to cache it
-                            proxyRes.body()
-                                .onSuccess(body -> {
-                                    if (body.length() <= cachePolicy.getMaxCacheableSizeBytes()) {
-                                        long ttl = cachePolicy.calculateTTL(proxyRes);
-                                        CacheEntry entry = new CacheEntry(
-                                            proxyRes.statusCode(),
-                                            proxyRes.headers(),
-                                            body,
-                                            ttl
-                                        );
-                                        responseCache.put(cacheKey, entry);
-                                    }
-                                    clientRes.end(body);
-                                })
-                                .onFailure(err -> {
-                                    logger.error("Failed to buffer response: " + err.getMessage());
-                                    if (!clientRes.ended()) {
-                                        clientRes.setStatusCode(502).end("Failed to read upstream response");
-                                    }
-                                });
-                        } else {
-                            // Stream non-cacheable responses
-                            proxyRes.pipeTo(clientRes)
-                                .onSuccess(v -> {
-                                    logger.info("Request completed successfully in " + (System.currentTimeMillis() - startTime) + " ms");
-                                })
-                                .onFailure(err -> {
-                                    logger.error("Failed to pipe response: " + err.getMessage());
-                                    if (!clientRes.ended()) {
-                                        clientRes.setStatusCode(502).end("Failed to read upstream response");
-                                    }
-                                });
-                        }
+                        relayResponse(req, proxyRes, zone, requestId, cacheKey, startTime);
                     })
                     .onFailure(err -> {
                         long duration = System.currentTimeMillis() - startTime;
@@ -185,13 +330,30 @@ public class ProxyHandler {
                         }
                     });
                 
+                // Body was already read (buffered upload or failed parent fetch)
+                if (body != null) {
+                    body.sendTo(proxyReq)
+                        .onFailure(err -> {
+                            logger.error("Failed to send buffered request: " + err.getMessage());
+                            proxyReq.reset();
+                        });
+                    return;
+                }
+
+                // Transfer-Encoding is not forwarded, re-chunk streamed bodies of unknown length
+                if (req.headers().contains("Transfer-Encoding") && !req.headers().contains("Content-Length")) {
+                    proxyReq.setChunked(true);
+                }
+
                 // THEN forward the request body - this is key!
                 // Use a pump to forward data as it arrives
-                req.pipeTo(proxyReq)
+                requestBodies.pipe(req, proxyReq)
                     .onFailure(err -> {
                         logger.error("Failed to pipe request: " + err.getMessage());
                         proxyReq.reset();
-                        if (!req.response().ended()) {
+                        if (err instanceof BodyRejectedException) {
+                            handleBodyFailure(req, err, requestId);
+                        } else if (!req.response().ended()) {
                             StatusTemplateHandler.handle(templateEngine, req, HttpStatus.BAD_GATEWAY, "Failed to forward request: " + err.getMessage(), requestId);
                         }
                     });
@@ -208,12 +370,174 @@ public class ProxyHandler {
             });
     }
     
+    /**
+     * Forward an upgrade handshake on the dedicated tunnel client. When the upstream
+     * switches protocols both connections become raw sockets, any other answer is
+     * relayed as a normal response.
+     */
+    private void proxyUpgrade(HttpServerRequest req, HttpClient tunnelClient, NetwardZone zone, String targetHost,
+                              int targetPort, String hostHeader, String requestId) {
+        long startTime = System.currentTimeMillis();
+
+        if (upgradeTunnel.isFull()) {
+            logger.warn("Rejected upgrade request, tunnel limit reached: " + hostHeader);
+            StatusTemplateHandler.handle(templateEngine, req, HttpStatus.SERVICE_UNAVAILABLE, "Too many open connections.", requestId);
+            return;
+        }
+
+        logger.info("Proxying upgrade: " + req.getHeader(HttpHeaders.UPGRADE) + " " + req.uri() + " from " + hostHeader + " to " + targetHost + ":" + targetPort);
+
+        tunnelClient.request(req.method(), targetPort, targetHost, req.uri())
+            .compose(upstreamReq -> {
+                HeaderForwarder.forwardRequestHeaders(req, upstreamReq.headers(), hostHeader, isTierHop(req));
+
+                // Connection and Upgrade are hop-by-hop, but this hop is the one being upgraded
+                upstreamReq.headers().set(HttpHeaders.CONNECTION, HttpHeaders.UPGRADE);
+                upstreamReq.headers().set(HttpHeaders.UPGRADE, req.getHeader(HttpHeaders.UPGRADE));
+                return upstreamReq.connect();
+            })
+            .onSuccess(upstreamRes -> {
+                if (upstreamRes.statusCode() != 101) {
+                    logger.info("Upgrade declined by upstream: " + upstreamRes.statusCode());
+                    relayResponse(req, upstreamRes, zone, requestId, null, startTime);
+                    return;
+                }
+
+                // Hold upstream data back until the client connection is switched as well
+                NetSocket upstreamSocket = upstreamRes.netSocket();
+                upstreamSocket.pause();
+
+                // The switch headers (Upgrade, Sec-WebSocket-Accept, ...) go out with the client's 101
+                HttpServerResponse clientRes = req.response();
+                upstreamRes.headers().forEach(header -> clientRes.headers().add(header.getKey(), header.getValue()));
+                clientRes.headers().remove(ParentRing.TIER_HEADER);
+                clientRes.headers().set("NW-RequestID", requestId);
+
+                req.toNetSocket()
+                    .onSuccess(clientSocket -> upgradeTunnel.pump(clientSocket, upstreamSocket, requestId))
+                    .onFailure(err -> {
+                        logger.error("Failed to switch client connection: " + err.getMessage());
+                        upstreamSocket.close();
+                    });
+            })
+            .onFailure(err -> {
+                long duration = System.currentTimeMillis() - startTime;
+                logger.error("Upgrade request failed after " + duration + " ms: " + err.getMessage());
+                if (!req.response().ended()) {
+                    StatusTemplateHandler.handle(templateEngine, req, HttpStatus.BAD_GATEWAY, "The upstream server is unreachable", requestId);
+                }
+            });
+    }
+
+    /**
+     * A request routed here by another tier node, verified by its source address.
+     */
+    private boolean isTierHop(HttpServerRequest req) {
+        return req.headers().contains(ParentRing.TIER_HEADER) && parentRing.isParentAddress(req.remoteAddress().host());
+    }
+
+    private void handleBodyFailure(HttpServerRequest req, Throwable err, String requestId) {
+        if (err instanceof BodyRejectedException rejected) {
+            logger.warn("Rejected request body: " + rejected.getMessage());
+            rejectRequest(req, rejected.getStatus(), "The request body was rejected: " + rejected.getMessage(), requestId);
+            return;
+        }
+
+        logger.error("Failed to read request: " + err.getMessage());
+        if (!req.response().ended()) {
+            StatusTemplateHandler.handle(templateEngine, req, HttpStatus.BAD_GATEWAY, "Failed to forward request: " + err.getMessage(), requestId);
+        }
+    }
+
+    /**
+     * Answer with an error and close the connection, as the rest of the body is never read.
+     */
+    private void rejectRequest(HttpServerRequest req, HttpStatus status, String message, String requestId) {
+        if (req.response().ended()) {
+            return;
+        }
+        req.response().putHeader("Connection", "close");
+        req.response().endHandler(v -> req.connection().close());
+        StatusTemplateHandler.handle(templateEngine, req, status, message, requestId);
+    }
+
+    /**
+     * Relay an upstream (origin or parent) response to the client, caching it on the way when allowed.
+     */
+    private void relayResponse(HttpServerRequest req, HttpClientResponse proxyRes, NetwardZone zone, String requestId,
+                               String cacheKey, long startTime) {
+        HttpServerResponse clientRes = req.response();
+        clientRes.setStatusCode(proxyRes.statusCode());
+        HeaderForwarder.forwardResponseHeaders(proxyRes.headers(), clientRes.headers());
+        
+        // Determine if response should be cached
+        boolean shouldCache = cacheKey != null && cachePolicy.isCacheable(req, proxyRes, zone);
+        
+        // Snapshot the filtered headers before per-request ones are added
+        CachedHeaders cachedHeaders = shouldCache ? CachedHeaders.from(clientRes.headers()) : null;
+        clientRes.headers().set("NW-RequestID", requestId);
+        clientRes.headers().set("X-Cache", "MISS");
+        
+        if (shouldCache) {
+            // Buffer the response to cache it
+            proxyRes.body()
+                .onSuccess(body -> {
+                    if (body.length() <= cachePolicy.getMaxCacheableSizeBytes()) {
+                        long ttl = cachePolicy.calculateTTL(proxyRes, zone);
+                        CacheEntry entry = new CacheEntry(
+                            proxyRes.statusCode(),
+                            cachedHeaders,
+                            body,
+                            ttl
+                        );
+                        responseCache.put(cacheKey, entry);
+                        
+                        if (zone.isImageOptimization() && proxyRes.statusCode() == 200 && imageOptimizer.isOptimizable(proxyRes.getHeader("Content-Type"))) {
+                            imageOptimizer.submit(cacheKey, entry, proxyRes.getHeader("Content-Type"));
+                        }
+                    }
+                    clientRes.end(body);
+                })
+                .onFailure(err -> {
+                    logger.error("Failed to buffer response: " + err.getMessage());
+                    if (!clientRes.ended()) {
+                        clientRes.setStatusCode(502).end("Failed to read upstream response");
+                    }
+                });
+        } else {
+            // Transfer-Encoding is hop-by-hop, so re-chunk when the length is unknown
+            if (!clientRes.headers().contains("Content-Length")) {
+                clientRes.setChunked(true);
+            }
+
+            // Stream non-cacheable responses
+            proxyRes.pipeTo(clientRes)
+                .onSuccess(v -> {
+                    logger.info("Request completed successfully in " + (System.currentTimeMillis() - startTime) + " ms");
+                })
+                .onFailure(err -> {
+                    logger.error("Failed to pipe response: " + err.getMessage());
+                    if (!clientRes.ended()) {
+                        clientRes.setStatusCode(502).end("Failed to read upstream response");
+                    }
+                });
+        }
+    }
+
     /**
      * Log cache statistics
      */
     public void logCacheStats() {
         responseCache.logStats();
     }
+
+    public FloodGuard getFloodGuard() {
+        return floodGuard;
+    }
+
+    public UpgradeTunnel getUpgradeTunnel() {
+        return upgradeTunnel;
+    }
     
     /**
      * Invalidate all cache entries
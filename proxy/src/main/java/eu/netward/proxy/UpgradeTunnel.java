@@ -0,0 +1,165 @@
+package eu.netward.proxy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.netward.http.NetworkTuning;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.net.NetSocket;
+
+/**
+ * Tunnels HTTP/1.1 {@code Connection: Upgrade} requests (WebSockets and similar).
+ * The handshake runs on a dedicated client so long-lived connections never hold a
+ * slot of the shared upstream pool; once both sides switched protocols, raw bytes
+ * are pumped between the two sockets with backpressure until either side closes
+ * or no data flowed in either direction for the idle timeout.
+ */
+public class UpgradeTunnel {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpgradeTunnel.class);
+
+    private final Vertx vertx;
+    private final int maxTunnels;
+    private final int idleTimeoutSeconds;
+    private final int connectTimeoutMillis;
+    private final AtomicInteger active = new AtomicInteger();
+
+    public UpgradeTunnel(Vertx vertx, int maxTunnels, int idleTimeoutSeconds, int connectTimeoutMillis) {
+        this.vertx = vertx;
+        this.maxTunnels = maxTunnels;
+        this.idleTimeoutSeconds = idleTimeoutSeconds;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public static UpgradeTunnel fromEnv(Vertx vertx) {
+        return new UpgradeTunnel(
+            vertx,
+            Integer.parseInt(System.getenv().getOrDefault("NETWARD_TUNNEL_MAX", "10000")),
+            Integer.parseInt(System.getenv().getOrDefault("NETWARD_TUNNEL_IDLE_TIMEOUT", "300")),
+            10000);
+    }
+
+    /**
+     * Only HTTP/1.1 requests with an Upgrade header listed in Connection can be tunneled.
+     */
+    public static boolean isUpgrade(HttpServerRequest req) {
+        if (req.version() != HttpVersion.HTTP_1_1) {
+            return false;
+        }
+
+        String upgrade = req.getHeader(HttpHeaders.UPGRADE);
+        String connection = req.getHeader(HttpHeaders.CONNECTION);
+        if (upgrade == null || connection == null) {
+            return false;
+        }
+
+        for (String token : connection.split(",")) {
+            if (token.trim().equalsIgnoreCase("upgrade")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Client for upgrade handshakes, one per event loop next to the regular pool.
+     * It has no wait queue, so handshakes fail fast instead of queueing once
+     * the event loop's share of NETWARD_TUNNEL_MAX is reached.
+     */
+    public HttpClient createClient(Vertx vertx, NetworkTuning networkTuning) {
+        PoolOptions poolOptions = new PoolOptions()
+            .setHttp1MaxSize(Math.max(1, maxTunnels / networkTuning.getAcceptors()))
+            .setMaxWaitQueueSize(0);
+
+        return vertx
+            .httpClientBuilder()
+            .with(poolOptions)
+            .with(networkTuning.apply(new HttpClientOptions()
+                .setKeepAlive(true)
+                // Guards the handshake; after the switch it sees both directions on the upstream
+                // socket, the same as the tunnel's activity timer
+                .setIdleTimeout(idleTimeoutSeconds)
+                .setConnectTimeout(connectTimeoutMillis)))
+            .build();
+    }
+
+    public boolean isFull() {
+        return active.get() >= maxTunnels;
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * Pump bytes both ways until one side ends, then close the other. A side is
+     * paused while the other's write queue is full. The tunnel is closed when no
+     * data flowed in either direction for the idle timeout.
+     */
+    public void pump(NetSocket clientSocket, NetSocket upstreamSocket, String requestId) {
+        long startTime = System.currentTimeMillis();
+        int count = active.incrementAndGet();
+        logger.info("Tunnel opened: {} ({} active)", requestId, count);
+
+        long idleMillis = idleTimeoutSeconds * 1000L;
+        long[] lastActivity = {startTime};
+        long[] idleTimer = {-1};
+        if (idleMillis > 0) {
+            idleTimer[0] = scheduleIdleCheck(clientSocket, idleMillis, lastActivity, idleTimer, requestId);
+        }
+
+        clientSocket.closeHandler(v -> {
+            vertx.cancelTimer(idleTimer[0]);
+            upstreamSocket.close();
+            logger.info("Tunnel closed: {} after {} ms ({} active)",
+                requestId, System.currentTimeMillis() - startTime, active.decrementAndGet());
+        });
+        upstreamSocket.closeHandler(v -> clientSocket.close());
+
+        forward(clientSocket, upstreamSocket, lastActivity, requestId);
+        forward(upstreamSocket, clientSocket, lastActivity, requestId);
+    }
+
+    private void forward(NetSocket source, NetSocket destination, long[] lastActivity, String requestId) {
+        source.handler(chunk -> {
+            lastActivity[0] = System.currentTimeMillis();
+            destination.write(chunk);
+            if (destination.writeQueueFull()) {
+                source.pause();
+                destination.drainHandler(v -> source.resume());
+            }
+        });
+        source.endHandler(v -> destination.end());
+        source.exceptionHandler(err -> {
+            logger.debug("Tunnel {} failed: {}", requestId, err.getMessage());
+            source.close();
+            destination.close();
+        });
+        source.resume();
+    }
+
+    /**
+     * One timer per tunnel: when it fires early because of recent traffic it is
+     * re-armed for the remaining time instead of being reset on every chunk.
+     */
+    private long scheduleIdleCheck(NetSocket clientSocket, long delay, long[] lastActivity, long[] idleTimer, String requestId) {
+        return vertx.setTimer(delay, id -> {
+            long idle = System.currentTimeMillis() - lastActivity[0];
+            long idleMillis = idleTimeoutSeconds * 1000L;
+            if (idle >= idleMillis) {
+                logger.info("Tunnel {} idle for {} ms, closing", requestId, idle);
+                clientSocket.close();
+                return;
+            }
+            idleTimer[0] = scheduleIdleCheck(clientSocket, idleMillis - idle, lastActivity, idleTimer, requestId);
+        });
+    }
+}
@@ -0,0 +1,353 @@
+package eu.netward.tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import eu.netward.cache.CacheEntry;
+import eu.netward.cache.CachePolicy;
+import eu.netward.cache.CachedHeaders;
+import eu.netward.cache.ResponseCache;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Offline cache simulator. Replays a recorded request trace through the real
+ * {@link CachePolicy} as fast as possible, for every combination of cache size
+ * and eviction policy, and reports hit ratio, byte hit ratio and origin egress.
+ * The W-TinyLFU layouts use the real {@link ResponseCache}; plain LRU and FIFO
+ * serve as baselines. Time is taken from the trace, so TTLs behave as in
+ * production.
+ *
+ * <p>The trace is a tab separated file, one request per line, {@code #} starts a comment:
+ * <pre>
+ * timestamp_ms  method  host  uri  status  size_bytes  content_type  cache_control
+ * </pre>
+ * Empty trailing columns may be left out or written as {@code -}.
+ *
+ * <p>Usage: {@code java -cp proxy.jar eu.netward.tools.CacheSimulator trace.tsv [--sizes 256m,1g,2g] [--layouts segmented,single,lru,fifo]}
+ */
+public class CacheSimulator {
+
+    private static final long MAX_AGE_SECONDS = 4 * 3600;
+    private static final Buffer NO_BODY = Buffer.buffer();
+
+    public enum Layout {
+        /** Size-class segments with large-object admission, as used by the proxy */
+        SEGMENTED,
+        /** One W-TinyLFU segment holding everything, without admission filter */
+        SINGLE,
+        /** Least recently used eviction, baseline */
+        LRU,
+        /** First in, first out eviction, baseline */
+        FIFO
+    }
+
+    private final Path trace;
+    private final CachePolicy cachePolicy;
+
+    public CacheSimulator(Path trace, CachePolicy cachePolicy) {
+        this.trace = trace;
+        this.cachePolicy = cachePolicy;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: CacheSimulator <trace.tsv> [--sizes 256m,512m,1g,2g] [--layouts segmented,single,lru,fifo]");
+            System.exit(1);
+        }
+
+        // Cache logging per request would dominate the replay time
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("eu.netward")).setLevel(Level.WARN);
+
+        String sizes = "256m,512m,1g,2g";
+        String layouts = "segmented,single,lru,fifo";
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--sizes" -> sizes = args[i + 1];
+                case "--layouts" -> layouts = args[i + 1];
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+                }
+            }
+        }
+
+        // Same policy settings as the proxy
+        CachePolicy cachePolicy = new CachePolicy(4 * 3600, 10 * 1024 * 1024,
+            Long.parseLong(System.getenv().getOrDefault("NETWARD_NEGATIVE_TTL", "60")),
+            Long.parseLong(System.getenv().getOrDefault("NETWARD_REDIRECT_TTL", "300")));
+        CacheSimulator simulator = new CacheSimulator(Path.of(args[0]), cachePolicy);
+
+        System.out.printf("%-10s %10s %12s %10s %14s %16s %10s%n",
+            "layout", "size", "requests", "hit %", "byte hit %", "origin egress", "time ms");
+        for (String layout : layouts.split(",")) {
+            for (String size : sizes.split(",")) {
+                Result result = simulator.run(Layout.valueOf(layout.trim().toUpperCase(Locale.ROOT)), parseSize(size.trim()));
+                System.out.printf("%-10s %10s %12d %10.2f %14.2f %16s %10d%n",
+                    result.layout().name().toLowerCase(Locale.ROOT),
+                    size.trim(),
+                    result.requests(),
+                    result.hitRatio() * 100,
+                    result.byteHitRatio() * 100,
+                    formatBytes(result.originBytes()),
+                    result.durationMillis());
+
+                if (result.layout() == Layout.SEGMENTED) {
+                    for (ResponseCache.SegmentStats segment : result.segments()) {
+                        System.out.printf("    %-8s entries %d, hits %d, puts %d, rejected %d, evictions %d%n",
+                            segment.sizeClass().name().toLowerCase(Locale.ROOT),
+                            segment.entries(),
+                            segment.hits(),
+                            segment.puts(),
+                            segment.rejected(),
+                            segment.evictions());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Replay the whole trace against a fresh cache of the given layout and size.
+     */
+    public Result run(Layout layout, long maxWeightBytes) throws IOException {
+        long startTime = System.currentTimeMillis();
+        long[] now = {0};
+
+        ResponseCache responseCache = switch (layout) {
+            case SEGMENTED -> new ResponseCache(maxWeightBytes, MAX_AGE_SECONDS, 64 * 1024, 1024 * 1024, 0.40, 0.35, () -> now[0] * 1_000_000);
+            case SINGLE -> new ResponseCache(maxWeightBytes, MAX_AGE_SECONDS, Long.MAX_VALUE, Long.MAX_VALUE, 1.0, 0.0, () -> now[0] * 1_000_000);
+            default -> null;
+        };
+        SimulatedCache cache = responseCache != null
+            ? new CaffeineCache(responseCache)
+            : new LinkedCache(maxWeightBytes, layout == Layout.LRU, () -> now[0]);
+
+        long requests = 0;
+        long hits = 0;
+        long bytes = 0;
+        long hitBytes = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(trace, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                TraceRecord record = TraceRecord.parse(line);
+                if (record == null) {
+                    continue;
+                }
+
+                now[0] = record.timestamp();
+                requests++;
+                bytes += record.size();
+
+                String cacheKey = cachePolicy.buildCacheKey(record.host(), record.uri());
+                boolean readable = "GET".equals(record.method()) || "HEAD".equals(record.method());
+                if (readable && cache.get(cacheKey) != null) {
+                    hits++;
+                    hitBytes += record.size();
+                    continue;
+                }
+
+                // Miss - the response comes from the origin and may be cached on the way
+                MultiMap headers = record.headers();
+                if (cachePolicy.isCacheable(record.method(), record.uri(), record.status(), headers, null)
+                        && record.size() <= cachePolicy.getMaxCacheableSizeBytes()) {
+                    long ttl = cachePolicy.calculateTTL(record.status(), headers, null);
+                    cache.put(cacheKey, new CacheEntry(record.status(), CachedHeaders.from(headers), NO_BODY,
+                        (int) record.size(), ttl, record.timestamp()));
+                }
+            }
+        }
+
+        List<ResponseCache.SegmentStats> segments = new ArrayList<>();
+        if (responseCache != null) {
+            for (ResponseCache.SizeClass sizeClass : ResponseCache.SizeClass.values()) {
+                segments.add(responseCache.getStats(sizeClass));
+            }
+        }
+
+        return new Result(layout, maxWeightBytes, requests, hits, bytes, hitBytes,
+            System.currentTimeMillis() - startTime, segments);
+    }
+
+    static long parseSize(String size) {
+        String value = size.toLowerCase(Locale.ROOT);
+        long multiplier = 1;
+        if (value.endsWith("k")) {
+            multiplier = 1024;
+        } else if (value.endsWith("m")) {
+            multiplier = 1024 * 1024;
+        } else if (value.endsWith("g")) {
+            multiplier = 1024 * 1024 * 1024;
+        }
+        if (multiplier > 1) {
+            value = value.substring(0, value.length() - 1);
+        }
+        return Long.parseLong(value) * multiplier;
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes >= 1024L * 1024 * 1024) {
+            return String.format("%.2f GB", bytes / (1024.0 * 1024 * 1024));
+        }
+        if (bytes >= 1024L * 1024) {
+            return String.format("%.2f MB", bytes / (1024.0 * 1024));
+        }
+        return String.format("%.2f KB", bytes / 1024.0);
+    }
+
+    public record Result(Layout layout, long maxWeightBytes, long requests, long hits, long bytes, long hitBytes,
+                         long durationMillis, List<ResponseCache.SegmentStats> segments) {
+
+        public double hitRatio() {
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+
+        public double byteHitRatio() {
+            return bytes == 0 ? 0 : (double) hitBytes / bytes;
+        }
+
+        /**
+         * Bytes that had to be fetched from the origin (every miss).
+         */
+        public long originBytes() {
+            return bytes - hitBytes;
+        }
+    }
+
+    /**
+     * The cache operations a replay needs, so every layout runs the same loop.
+     */
+    interface SimulatedCache {
+
+        CacheEntry get(String key);
+
+        void put(String key, CacheEntry entry);
+    }
+
+    private record CaffeineCache(ResponseCache cache) implements SimulatedCache {
+
+        @Override
+        public CacheEntry get(String key) {
+            return cache.get(key);
+        }
+
+        @Override
+        public void put(String key, CacheEntry entry) {
+            cache.put(key, entry);
+        }
+    }
+
+    /**
+     * Weight-bounded baseline without admission filter: LRU in access order, FIFO in insertion order.
+     */
+    static final class LinkedCache implements SimulatedCache {
+
+        private final long maxWeightBytes;
+        private final LongSupplier clock;
+        private final LinkedHashMap<String, CacheEntry> entries;
+        private long weight;
+
+        LinkedCache(long maxWeightBytes, boolean accessOrder, LongSupplier clock) {
+            this.maxWeightBytes = maxWeightBytes;
+            this.clock = clock;
+            this.entries = new LinkedHashMap<>(1024, 0.75f, accessOrder);
+        }
+
+        @Override
+        public CacheEntry get(String key) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null && entry.isStale(clock.getAsLong())) {
+                entries.remove(key);
+                weight -= entry.getWeight();
+                return null;
+            }
+            return entry;
+        }
+
+        @Override
+        public void put(String key, CacheEntry entry) {
+            if (entry.getWeight() > maxWeightBytes) {
+                return;
+            }
+
+            CacheEntry previous = entries.remove(key);
+            if (previous != null) {
+                weight -= previous.getWeight();
+            }
+            entries.put(key, entry);
+            weight += entry.getWeight();
+
+            // The new entry is last in iteration order, so eviction starts with the oldest
+            Iterator<CacheEntry> iterator = entries.values().iterator();
+            while (weight > maxWeightBytes && iterator.hasNext()) {
+                weight -= iterator.next().getWeight();
+                iterator.remove();
+            }
+        }
+    }
+
+    record TraceRecord(long timestamp, String method, String host, String uri, int status, long size,
+                       String contentType, String cacheControl) {
+
+        static TraceRecord parse(String line) {
+            if (line.isBlank() || line.startsWith("#")) {
+                return null;
+            }
+
+            String[] columns = line.split("\t");
+            if (columns.length < 6) {
+                return null;
+            }
+
+            try {
+                return new TraceRecord(
+                    Long.parseLong(columns[0]),
+                    columns[1].toUpperCase(Locale.ROOT),
+                    columns[2],
+                    columns[3],
+                    Integer.parseInt(columns[4]),
+                    Long.parseLong(columns[5]),
+                    column(columns, 6),
+                    column(columns, 7));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private static String column(String[] columns, int index) {
+            if (index >= columns.length || columns[index].isEmpty() || "-".equals(columns[index])) {
+                return null;
+            }
+            return columns[index];
+        }
+
+        MultiMap headers() {
+            MultiMap headers = MultiMap.caseInsensitiveMultiMap();
+            headers.set("Content-Length", String.valueOf(size));
+            if (contentType != null) {
+                headers.set("Content-Type", contentType);
+            }
+            if (cacheControl != null) {
+                headers.set("Cache-Control", cacheControl);
+            }
+            if (status >= 300 && status < 400) {
+                // Redirect targets are not part of the trace
+                headers.set("Location", "/");
+            }
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package eu.netward.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+
+/**
+ * Runs blocking work (JDBC) on virtual threads so pending lookups never tie up
+ * event loops or platform threads. Concurrency is capped to the database pool
+ * size; waiting tasks park cheaply on the semaphore instead of on Hikari.
+ */
+public class BlockingExecutor {
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+
+    public BlockingExecutor(String name, int maxConcurrency) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    /**
+     * Run a blocking task on a virtual thread and complete the returned future
+     * back on the calling Vert.x context.
+     */
+    public <T> Future<T> executeBlocking(Callable<T> task) {
+        Context context = Vertx.currentContext();
+        Promise<T> promise = Promise.promise();
+
+        executor.execute(() -> {
+            try {
+                T result = call(task);
+                complete(context, () -> promise.complete(result));
+            } catch (Exception e) {
+                complete(context, () -> promise.fail(e));
+            }
+        });
+
+        return promise.future();
+    }
+
+    /**
+     * Run a blocking task on the current thread within the concurrency limit.
+     */
+    private <T> T call(Callable<T> task) throws Exception {
+        permits.acquire();
+        try {
+            return task.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static void complete(Context context, Runnable action) {
+        if (context != null) {
+            context.runOnContext(v -> action.run());
+        } else {
+            action.run();
+        }
+    }
+}
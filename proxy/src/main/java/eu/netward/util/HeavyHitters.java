@@ -0,0 +1,168 @@
+package eu.netward.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Fixed-memory streaming heavy-hitter tracker: a count-min sketch estimates how
+ * often each key was seen in the current window and a small top-K table keeps
+ * the hottest keys. Memory does not grow with the number of distinct keys.
+ * Counts are approximate (never under-estimated) and lost increments under
+ * contention are acceptable.
+ *
+ * <p>The table only stores keys, their counts are read back from the sketch, so
+ * a key that is already tracked - typically the one flooding - never takes the lock.
+ */
+public class HeavyHitters {
+
+    private final int depth;
+    private final int widthMask;
+    private final AtomicIntegerArray counters;
+
+    private final int k;
+    private final String[] topKeys;
+    private final Set<String> tracked = ConcurrentHashMap.newKeySet();
+    private volatile int topSize;
+    private volatile int topMin;
+    private volatile List<Entry> lastWindow = List.of();
+
+    /**
+     * @param depth number of hash rows
+     * @param width counters per row, rounded up to a power of two
+     * @param k size of the top-K table
+     */
+    public HeavyHitters(int depth, int width, int k) {
+        int roundedWidth = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.depth = depth;
+        this.widthMask = roundedWidth - 1;
+        this.counters = new AtomicIntegerArray(depth * roundedWidth);
+        this.k = k;
+        this.topKeys = new String[k];
+    }
+
+    /**
+     * Count one occurrence of the key and return its estimated count in the current window.
+     */
+    public int add(String key) {
+        int h1 = key.hashCode();
+        int h2 = secondHash(h1);
+
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(row, h1, h2)));
+        }
+
+        // Tracked keys need no bookkeeping; others only take the lock when they can enter the table
+        if (!tracked.contains(key) && (topSize < k || estimate > topMin)) {
+            offer(key, estimate);
+        }
+        return estimate;
+    }
+
+    /**
+     * Estimated count of the key in the current window, without counting it.
+     */
+    public int estimate(String key) {
+        int h1 = key.hashCode();
+        int h2 = secondHash(h1);
+
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(row, h1, h2)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Heaviest keys of the current window, highest count first.
+     */
+    public synchronized List<Entry> topK() {
+        List<Entry> entries = new ArrayList<>(topSize);
+        for (int i = 0; i < topSize; i++) {
+            entries.add(new Entry(topKeys[i], estimate(topKeys[i])));
+        }
+        entries.sort(Comparator.comparingInt(Entry::count).reversed());
+        return entries;
+    }
+
+    /**
+     * Heaviest keys of the last completed window.
+     */
+    public List<Entry> lastWindowTopK() {
+        return lastWindow;
+    }
+
+    /**
+     * Start a new window: remember the current top-K and reset all counters.
+     */
+    public synchronized void rotate() {
+        lastWindow = topK();
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+        Arrays.fill(topKeys, null);
+        tracked.clear();
+        topSize = 0;
+        topMin = 0;
+    }
+
+    private synchronized void offer(String key, int estimate) {
+        if (tracked.contains(key)) {
+            return;
+        }
+
+        if (topSize < k) {
+            topKeys[topSize] = key;
+            tracked.add(key);
+            topSize++;
+            updateMin();
+            return;
+        }
+
+        // Counts of tracked keys only grow within a window, so re-read them before replacing
+        int minIndex = 0;
+        int minCount = Integer.MAX_VALUE;
+        for (int i = 0; i < topSize; i++) {
+            int count = estimate(topKeys[i]);
+            if (count < minCount) {
+                minCount = count;
+                minIndex = i;
+            }
+        }
+
+        if (estimate > minCount) {
+            tracked.remove(topKeys[minIndex]);
+            topKeys[minIndex] = key;
+            tracked.add(key);
+        }
+        updateMin();
+    }
+
+    private void updateMin() {
+        if (topSize < k) {
+            topMin = 0;
+            return;
+        }
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < topSize; i++) {
+            min = Math.min(min, estimate(topKeys[i]));
+        }
+        topMin = min;
+    }
+
+    private int index(int row, int h1, int h2) {
+        return row * (widthMask + 1) + ((h1 + row * h2) & widthMask);
+    }
+
+    private static int secondHash(int h1) {
+        return Integer.rotateLeft(h1 * 0x9E3779B9, 16) | 1;
+    }
+
+    public record Entry(String key, int count) {
+    }
+}
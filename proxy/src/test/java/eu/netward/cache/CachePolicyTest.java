@@ -0,0 +1,137 @@
+package eu.netward.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import eu.netward.model.NetwardZone;
+import io.vertx.core.MultiMap;
+
+public class CachePolicyTest {
+
+    private static final long MAX_TTL = 86400;
+    private static final long NEGATIVE_TTL = 60;
+    private static final long REDIRECT_TTL = 300;
+
+    private final CachePolicy policy = new CachePolicy(MAX_TTL, 10 * 1024 * 1024, NEGATIVE_TTL, REDIRECT_TTL);
+
+    @Test
+    public void permanentRedirectsUseRedirectTtl() {
+        for (int status : new int[] {301, 308}) {
+            MultiMap headers = headers("Location", "https://example.com/new");
+            assertTrue(policy.isCacheable("GET", "/old", status, headers, null));
+            assertEquals(REDIRECT_TTL, policy.calculateTTL(status, headers, null));
+        }
+    }
+
+    @Test
+    public void permanentRedirectsHonourMaxAge() {
+        MultiMap headers = headers("Location", "/new", "Cache-Control", "max-age=30");
+        assertTrue(policy.isCacheable("GET", "/old", 308, headers, null));
+        assertEquals(30, policy.calculateTTL(308, headers, null));
+
+        MultiMap noStore = headers("Location", "/new", "Cache-Control", "max-age=0");
+        assertFalse(policy.isCacheable("GET", "/old", 301, noStore, null));
+    }
+
+    @Test
+    public void redirectsWithoutLocationAreNotCached() {
+        assertFalse(policy.isCacheable("GET", "/old", 301, headers(), null));
+        assertFalse(policy.isCacheable("GET", "/old", 302, headers("Cache-Control", "max-age=60"), null));
+    }
+
+    @Test
+    public void temporaryRedirectsNeedExplicitFreshness() {
+        for (int status : new int[] {302, 307}) {
+            assertFalse(policy.isCacheable("GET", "/login", status, headers("Location", "/sso"), null));
+
+            MultiMap headers = headers("Location", "/sso", "Cache-Control", "s-maxage=120, max-age=10");
+            assertTrue(policy.isCacheable("GET", "/login", status, headers, null));
+            assertEquals(120, policy.calculateTTL(status, headers, null));
+        }
+    }
+
+    @Test
+    public void negativeResponsesUseNegativeTtl() {
+        for (int status : new int[] {404, 410}) {
+            assertTrue(policy.isCacheable("GET", "/missing", status, headers(), null));
+            assertEquals(NEGATIVE_TTL, policy.calculateTTL(status, headers(), null));
+        }
+    }
+
+    @Test
+    public void negativeTtlCapsOriginMaxAge() {
+        assertEquals(NEGATIVE_TTL, policy.calculateTTL(404, headers("Cache-Control", "max-age=3600"), null));
+        assertEquals(10, policy.calculateTTL(404, headers("Cache-Control", "max-age=10"), null));
+    }
+
+    @Test
+    public void zeroMaxAgeIsNotCached() {
+        for (int status : new int[] {404, 410}) {
+            assertFalse(policy.isCacheable("GET", "/missing", status, headers("Cache-Control", "max-age=0"), null));
+            assertFalse(policy.isCacheable("GET", "/missing", status, headers("Cache-Control", "s-maxage=0, max-age=60"), null));
+        }
+        assertFalse(policy.isCacheable("GET", "/app.js", 200, headers("Cache-Control", "public, max-age=0"), null));
+        assertTrue(policy.isCacheable("GET", "/app.js", 200, headers("Cache-Control", "public, max-age=60"), null));
+    }
+
+    @Test
+    public void privateNegativeResponsesAreNotCached() {
+        assertFalse(policy.isCacheable("GET", "/missing", 404, headers("Cache-Control", "private"), null));
+        assertFalse(policy.isCacheable("GET", "/missing", 410, headers("Cache-Control", "no-store"), null));
+    }
+
+    @Test
+    public void zeroTtlsDisableNegativeAndRedirectCaching() {
+        CachePolicy strict = new CachePolicy(MAX_TTL, 10 * 1024 * 1024, 0, 0);
+        assertFalse(strict.isCacheable("GET", "/missing", 404, headers(), null));
+        assertFalse(strict.isCacheable("GET", "/old", 301, headers("Location", "/new"), null));
+    }
+
+    @Test
+    public void zoneOverridesGlobalTtls() {
+        NetwardZone zone = new NetwardZone();
+        zone.setNegativeTtl(5);
+        zone.setRedirectTtl(0);
+
+        assertTrue(policy.isCacheable("GET", "/missing", 404, headers(), zone));
+        assertEquals(5, policy.calculateTTL(404, headers(), zone));
+        assertFalse(policy.isCacheable("GET", "/old", 301, headers("Location", "/new"), zone));
+    }
+
+    @Test
+    public void zoneCanEnableNegativeCaching() {
+        CachePolicy strict = new CachePolicy(MAX_TTL, 10 * 1024 * 1024, 0, 0);
+        NetwardZone zone = new NetwardZone();
+        zone.setNegativeTtl(30);
+        zone.setRedirectTtl(600);
+
+        assertTrue(strict.isCacheable("GET", "/missing", 410, headers(), zone));
+        assertEquals(30, strict.calculateTTL(410, headers(), zone));
+        assertTrue(strict.isCacheable("GET", "/old", 301, headers("Location", "/new"), zone));
+        assertEquals(600, strict.calculateTTL(301, headers("Location", "/new"), zone));
+    }
+
+    @Test
+    public void onlyGetAndHeadAreCached() {
+        assertFalse(policy.isCacheable("POST", "/missing", 404, headers(), null));
+        assertFalse(policy.isCacheable("PUT", "/old", 301, headers("Location", "/new"), null));
+        assertTrue(policy.isCacheable("HEAD", "/missing", 404, headers(), null));
+    }
+
+    @Test
+    public void otherStatusesAreNotCached() {
+        assertFalse(policy.isCacheable("GET", "/error", 500, headers(), null));
+        assertFalse(policy.isCacheable("GET", "/other", 303, headers("Location", "/new"), null));
+    }
+
+    private static MultiMap headers(String... namesAndValues) {
+        MultiMap headers = MultiMap.caseInsensitiveMultiMap();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            headers.add(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return headers;
+    }
+}
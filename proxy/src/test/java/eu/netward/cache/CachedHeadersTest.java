@@ -0,0 +1,88 @@
+package eu.netward.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import io.vertx.core.MultiMap;
+
+public class CachedHeadersTest {
+
+    @Test
+    public void perHitHeadersAreNotStored() {
+        MultiMap headers = MultiMap.caseInsensitiveMultiMap()
+            .add("Age", "10")
+            .add("cache-control", "public, max-age=60")
+            .add("X-Cache", "MISS")
+            .add("NW-RequestID", "TEST-1")
+            .add("Content-Type", "text/css");
+
+        CachedHeaders cached = CachedHeaders.from(headers);
+
+        assertEquals(1, cached.size());
+        assertEquals("text/css", cached.get("content-type"));
+        assertNull(cached.get("Cache-Control"));
+    }
+
+    @Test
+    public void byteSizeCountsNamesValuesAndSeparators() {
+        CachedHeaders cached = CachedHeaders.from(MultiMap.caseInsensitiveMultiMap()
+            .add("ETag", "\"a\"")
+            .add("Content-Type", "image/jpeg"));
+
+        // "ETag: \"a\"\r\n" and "Content-Type: image/jpeg\r\n"
+        assertEquals(11 + 26, cached.getByteSize());
+    }
+
+    @Test
+    public void withReplacesExistingHeader() {
+        CachedHeaders original = CachedHeaders.from(MultiMap.caseInsensitiveMultiMap()
+            .add("Content-Type", "image/jpeg")
+            .add("Content-Length", "1000"));
+
+        CachedHeaders variant = original.with("content-type", "image/webp").with("Content-Length", "20");
+
+        assertEquals(2, variant.size());
+        assertEquals("image/webp", variant.get("Content-Type"));
+        assertEquals("20", variant.get("Content-Length"));
+        assertEquals(original.getByteSize() - 2, variant.getByteSize());
+    }
+
+    @Test
+    public void withAddsMissingHeader() {
+        CachedHeaders original = CachedHeaders.from(MultiMap.caseInsensitiveMultiMap().add("Content-Type", "image/jpeg"));
+
+        CachedHeaders variant = original.with("Vary", "Accept");
+
+        assertEquals(2, variant.size());
+        assertEquals("Accept", variant.get("Vary"));
+        assertEquals(original.getByteSize() + 4 + 6 + 4, variant.getByteSize());
+    }
+
+    @Test
+    public void withLeavesTheOriginalUntouched() {
+        CachedHeaders original = CachedHeaders.from(MultiMap.caseInsensitiveMultiMap().add("Content-Type", "image/jpeg"));
+        int byteSize = original.getByteSize();
+
+        original.with("Content-Type", "image/webp").with("Vary", "Accept");
+
+        assertEquals(1, original.size());
+        assertEquals("image/jpeg", original.get("Content-Type"));
+        assertEquals(byteSize, original.getByteSize());
+    }
+
+    @Test
+    public void writeToAppendsAllHeaders() {
+        CachedHeaders cached = CachedHeaders.from(MultiMap.caseInsensitiveMultiMap()
+            .add("Set-Cookie", "a=1")
+            .add("Set-Cookie", "b=2")
+            .add("Content-Type", "text/html"));
+
+        MultiMap target = MultiMap.caseInsensitiveMultiMap();
+        cached.writeTo(target);
+
+        assertEquals(2, target.getAll("Set-Cookie").size());
+        assertEquals("text/html", target.get("Content-Type"));
+    }
+}
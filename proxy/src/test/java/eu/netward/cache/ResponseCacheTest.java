@@ -0,0 +1,104 @@
+package eu.netward.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import eu.netward.cache.ResponseCache.SizeClass;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+
+public class ResponseCacheTest {
+
+    private static final long SMALL_MAX = 64 * 1024;
+    private static final long LARGE_MIN = 1024 * 1024;
+
+    private final long[] nanos = {0};
+    private final ResponseCache cache = new ResponseCache(
+        64 * 1024 * 1024, 3600, SMALL_MAX, LARGE_MIN, 0.2, 0.5, () -> nanos[0]);
+
+    @Test
+    public void classifiesByWeight() {
+        assertEquals(SizeClass.SMALL, cache.classify(SMALL_MAX));
+        assertEquals(SizeClass.MEDIUM, cache.classify(SMALL_MAX + 1));
+        assertEquals(SizeClass.MEDIUM, cache.classify(LARGE_MIN - 1));
+        assertEquals(SizeClass.LARGE, cache.classify(LARGE_MIN));
+    }
+
+    @Test
+    public void routesEntriesToTheirSegment() {
+        cache.put("small", entry(1000, 60));
+        cache.put("medium", entry(200_000, 60));
+
+        assertEquals(1, cache.getStats(SizeClass.SMALL).puts());
+        assertEquals(1, cache.getStats(SizeClass.MEDIUM).puts());
+        assertEquals(0, cache.getStats(SizeClass.LARGE).puts());
+        assertEquals(1000, cache.get("small").getBodyLength());
+        assertEquals(200_000, cache.get("medium").getBodyLength());
+        assertEquals(1, cache.getStats(SizeClass.SMALL).hits());
+        assertEquals(1, cache.getStats(SizeClass.MEDIUM).hits());
+    }
+
+    @Test
+    public void largeEntriesNeedASecondFill() {
+        cache.put("large", entry(2 * 1024 * 1024, 60));
+        assertNull(cache.get("large"));
+        assertEquals(1, cache.getStats(SizeClass.LARGE).rejected());
+        assertEquals(0, cache.getStats(SizeClass.LARGE).puts());
+
+        cache.put("large", entry(2 * 1024 * 1024, 60));
+        assertNotNull(cache.get("large"));
+        assertEquals(1, cache.getStats(SizeClass.LARGE).rejected());
+        assertEquals(1, cache.getStats(SizeClass.LARGE).puts());
+    }
+
+    @Test
+    public void doorkeeperTracksKeysSeparately() {
+        cache.put("large-a", entry(2 * 1024 * 1024, 60));
+        cache.put("large-b", entry(2 * 1024 * 1024, 60));
+
+        assertNull(cache.get("large-a"));
+        assertNull(cache.get("large-b"));
+        assertEquals(2, cache.getStats(SizeClass.LARGE).rejected());
+    }
+
+    @Test
+    public void entryMovesWhenItChangesSize() {
+        cache.put("object", entry(1000, 60));
+        cache.put("object", entry(200_000, 60));
+
+        assertEquals(200_000, cache.get("object").getBodyLength());
+        assertEquals(0, cache.getStats(SizeClass.SMALL).entries());
+        assertEquals(1, cache.getStats(SizeClass.MEDIUM).entries());
+    }
+
+    @Test
+    public void staleEntriesAreNotServed() {
+        cache.put("page", entry(1000, 10));
+        assertNotNull(cache.get("page"));
+
+        nanos[0] = TimeUnit.SECONDS.toNanos(11);
+        assertNull(cache.get("page"));
+        assertEquals(0, cache.getStats(SizeClass.SMALL).entries());
+    }
+
+    @Test
+    public void variantLookupCountsOnce() {
+        cache.put("image", entry(1000, 60));
+
+        assertEquals(1000, cache.get(List.of("image#webp", "image#w320", "image")).getBodyLength());
+        assertNull(cache.get(List.of("other#webp", "other")));
+        assertEquals(1, cache.getStats().hitCount());
+        assertEquals(1, cache.getStats().missCount());
+    }
+
+    private CacheEntry entry(int bodyLength, long ttlSeconds) {
+        return new CacheEntry(200, CachedHeaders.from(MultiMap.caseInsensitiveMultiMap()), Buffer.buffer(),
+            bodyLength, ttlSeconds, TimeUnit.NANOSECONDS.toMillis(nanos[0]));
+    }
+}
@@ -0,0 +1,131 @@
+package eu.netward.http;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.netward.http.RequestBodyBuffer.BodyRejectedException;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpMethod;
+
+public class RequestBodyBufferTest {
+
+    private static final long TIMEOUT_MILLIS = 300;
+
+    private Vertx vertx;
+    private HttpClient client;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+        client = vertx.createHttpClient();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        await(vertx.close());
+    }
+
+    @Test
+    public void slowUploadWithinIdleTimeoutIsAccepted() throws Exception {
+        int port = start(new RequestBodyBuffer(vertx, false, 1024 * 1024, 1024 * 1024, TIMEOUT_MILLIS));
+
+        // Takes about three times the timeout in total, but never pauses for long
+        assertEquals("200 10240", await(upload(port, 10, 1024, 100, true)));
+    }
+
+    @Test
+    public void stalledUploadIsRejected() throws Exception {
+        int port = start(new RequestBodyBuffer(vertx, false, 1024 * 1024, 1024 * 1024, TIMEOUT_MILLIS));
+
+        assertEquals("408 ", await(upload(port, 2, 1024, 50, false)));
+    }
+
+    @Test
+    public void oversizedChunkedBodyIsRejected() throws Exception {
+        int port = start(new RequestBodyBuffer(vertx, false, 4096, 1024 * 1024, TIMEOUT_MILLIS));
+
+        assertEquals("413 ", await(upload(port, 10, 1024, 10, true)));
+    }
+
+    @Test
+    public void declaredLengthIsCheckedBeforeReading() throws Exception {
+        int port = start(new RequestBodyBuffer(vertx, false, 4096, 1024 * 1024, TIMEOUT_MILLIS));
+
+        assertEquals("413 ", await(send(port, Buffer.buffer(new byte[8192]))));
+    }
+
+    @Test
+    public void largeBufferedBodyIsSpooled() throws Exception {
+        int port = start(new RequestBodyBuffer(vertx, true, 1024 * 1024, 1024, TIMEOUT_MILLIS));
+
+        assertEquals("200 8192", await(send(port, Buffer.buffer(new byte[8192]))));
+        assertEquals("200 512", await(send(port, Buffer.buffer(new byte[512]))));
+    }
+
+    /**
+     * Server answering with the received body length, or the status of a rejected body.
+     */
+    private int start(RequestBodyBuffer bodies) throws Exception {
+        return await(vertx.createHttpServer()
+            .requestHandler(req -> {
+                req.pause();
+                if (bodies.exceedsLimit(req)) {
+                    req.response().setStatusCode(413).end();
+                    return;
+                }
+                bodies.read(req)
+                    .onSuccess(body -> req.response().end(String.valueOf(body.length())))
+                    .onFailure(err -> req.response()
+                        .setStatusCode(((BodyRejectedException) err).getStatus().getCode())
+                        .end());
+            })
+            .listen(0))
+            .actualPort();
+    }
+
+    private Future<String> send(int port, Buffer body) {
+        return client.request(HttpMethod.POST, port, "localhost", "/")
+            .compose(req -> req.send(body))
+            .compose(res -> res.body().map(b -> res.statusCode() + " " + b));
+    }
+
+    /**
+     * Chunked upload of {@code chunks} pieces, one every {@code intervalMillis}.
+     */
+    private Future<String> upload(int port, int chunks, int chunkSize, long intervalMillis, boolean end) {
+        return client.request(HttpMethod.POST, port, "localhost", "/")
+            .compose(req -> {
+                req.setChunked(true);
+                writeChunks(req, chunks, chunkSize, intervalMillis, end);
+                return req.response();
+            })
+            .compose(res -> res.body().map(b -> res.statusCode() + " " + b));
+    }
+
+    private void writeChunks(HttpClientRequest req, int chunks, int chunkSize, long intervalMillis, boolean end) {
+        int[] sent = {0};
+        vertx.setPeriodic(intervalMillis, id -> {
+            if (sent[0]++ < chunks) {
+                req.write(Buffer.buffer(new byte[chunkSize]));
+                return;
+            }
+            vertx.cancelTimer(id);
+            if (end) {
+                req.end();
+            }
+        });
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        return future.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,106 @@
+package eu.netward.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.net.NetSocket;
+
+public class RequestDeadlineTest {
+
+    private static final long TIMEOUT_MILLIS = 300;
+    private static final String REQUEST = "GET / HTTP/1.1\r\nHost: example.com\r\n\r\n";
+
+    private Vertx vertx;
+    private int port;
+
+    @Before
+    public void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        RequestDeadline deadline = new RequestDeadline(vertx, TIMEOUT_MILLIS);
+
+        // Same as HttpVerticle, without h2c detection the connection is handed over right away
+        HttpServer server = vertx.createHttpServer(new HttpServerOptions().setHttp2ClearTextEnabled(false));
+        server.connectionHandler(deadline::onConnection);
+        server.requestHandler(req -> {
+            deadline.onRequest(req);
+            // Responses may take longer than the header deadline
+            vertx.setTimer(TIMEOUT_MILLIS * 2, id -> req.response().end("ok"));
+        });
+        port = await(server.listen(0)).actualPort();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        await(vertx.close());
+    }
+
+    @Test
+    public void connectionWithoutRequestIsClosed() throws Exception {
+        Connection connection = connect();
+
+        long closedAfter = await(connection.closed);
+        assertTrue(closedAfter >= TIMEOUT_MILLIS);
+        assertEquals("", connection.received.toString());
+    }
+
+    @Test
+    public void slowResponseIsNotCutOff() throws Exception {
+        Connection connection = connect();
+        connection.socket.write(REQUEST);
+
+        long closedAfter = await(connection.closed);
+        assertTrue(connection.received.toString().startsWith("HTTP/1.1 200"));
+        assertTrue(connection.received.toString().endsWith("ok"));
+        // The kept-alive connection got a new header deadline after the response
+        assertTrue(closedAfter >= TIMEOUT_MILLIS * 3);
+    }
+
+    @Test
+    public void partialHeadersAreCutOff() throws Exception {
+        Connection connection = connect();
+        connection.socket.write("GET / HTTP/1.1\r\nHost: ");
+
+        await(connection.closed);
+        assertEquals("", connection.received.toString());
+    }
+
+    private Connection connect() throws Exception {
+        NetSocket socket = await(vertx.createNetClient().connect(port, "localhost"));
+        return new Connection(socket);
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        return future.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Raw client connection recording what it received and how long it stayed open.
+     */
+    private static class Connection {
+
+        private final NetSocket socket;
+        private final Buffer received = Buffer.buffer();
+        private final Future<Long> closed;
+
+        private Connection(NetSocket socket) {
+            long start = System.currentTimeMillis();
+            Promise<Long> promise = Promise.promise();
+            this.socket = socket;
+            this.closed = promise.future();
+            socket.handler(received::appendBuffer);
+            socket.closeHandler(v -> promise.complete(System.currentTimeMillis() - start));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package eu.netward.image;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ImageOptimizerTest {
+
+    @Test
+    public void widthParamIsStripped() {
+        assertEquals("/a.jpg", ImageOptimizer.stripWidthParam("/a.jpg?nw-width=320"));
+        assertEquals("/a.jpg?v=2", ImageOptimizer.stripWidthParam("/a.jpg?nw-width=320&v=2"));
+        assertEquals("/a.jpg?v=2&x=1", ImageOptimizer.stripWidthParam("/a.jpg?v=2&nw-width=320&x=1"));
+        assertEquals("/a.jpg?v=2", ImageOptimizer.stripWidthParam("/a.jpg?v=2"));
+    }
+
+    @Test
+    public void varyKeepsOriginTokens() {
+        assertEquals("Accept", ImageOptimizer.addVaryToken(null, "Accept"));
+        assertEquals("Accept-Encoding, Accept", ImageOptimizer.addVaryToken("Accept-Encoding", "Accept"));
+        assertEquals("accept, Origin", ImageOptimizer.addVaryToken("accept, Origin", "Accept"));
+        assertEquals("*", ImageOptimizer.addVaryToken("*", "Accept"));
+    }
+}
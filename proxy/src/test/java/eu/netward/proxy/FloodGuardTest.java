@@ -0,0 +1,143 @@
+package eu.netward.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import eu.netward.proxy.FloodGuard.Dimension;
+
+public class FloodGuardTest {
+
+    private static final String TRUSTED = "10.0.0.2";
+
+    // 1 s window: limits are 10 requests per IP, 5 rejections per host, URIs unrated
+    private FloodGuard guard(long cooldownSeconds) {
+        return new FloodGuard(true, 1, cooldownSeconds, 10, 5, 0, TRUSTED::equals);
+    }
+
+    // Only the URI is rated, at 10 requests per window
+    private FloodGuard uriGuard() {
+        return new FloodGuard(true, 1, 60, 0, 0, 10, TRUSTED::equals);
+    }
+
+    @Test
+    public void clientIsEscalatedAboveItsRate() {
+        FloodGuard guard = guard(60);
+        for (int i = 0; i < 10; i++) {
+            guard.recordRequest("192.0.2.1", "example.com", "/");
+        }
+        assertFalse(guard.isBlocked("192.0.2.1", "example.com", "/"));
+
+        guard.recordRequest("192.0.2.1", "example.com", "/");
+        assertTrue(guard.isBlocked("192.0.2.1", "example.com", "/"));
+        assertFalse(guard.isBlocked("192.0.2.9", "example.com", "/"));
+        assertEquals(1, guard.getBlockedCount(Dimension.CLIENT_IP));
+    }
+
+    @Test
+    public void trustedClientsAreNotRated() {
+        FloodGuard guard = guard(60);
+        for (int i = 0; i < 100; i++) {
+            guard.recordRequest(TRUSTED, "example.com", "/");
+        }
+
+        assertFalse(guard.isBlocked(TRUSTED, "example.com", "/"));
+        assertTrue(guard.getTopK(Dimension.CLIENT_IP).isEmpty());
+    }
+
+    @Test
+    public void rejectedHostsAreEscalated() {
+        FloodGuard guard = guard(60);
+        for (int i = 0; i < 6; i++) {
+            guard.recordRejected("unknown.example");
+        }
+
+        assertTrue(guard.isBlocked("192.0.2.1", "unknown.example", "/"));
+        assertFalse(guard.isBlocked("192.0.2.1", "example.com", "/"));
+        assertEquals("unknown.example", guard.getTopK(Dimension.HOST).get(0).key());
+    }
+
+    @Test
+    public void requestsWithoutHostReachTheFastPath() {
+        FloodGuard guard = guard(60);
+        for (int i = 0; i < 6; i++) {
+            guard.recordRejected(null);
+        }
+
+        assertTrue(guard.isBlocked("192.0.2.1", null, "/"));
+        assertFalse(guard.isBlocked("192.0.2.1", "example.com", "/"));
+    }
+
+    @Test
+    public void uriIsRatedPerHost() {
+        FloodGuard guard = uriGuard();
+        for (int i = 0; i < 11; i++) {
+            guard.recordRequest("192.0.2." + i, "example.com", "/");
+        }
+
+        assertTrue(guard.isBlocked("192.0.2.99", "example.com", "/"));
+        assertFalse(guard.isBlocked("192.0.2.99", "other.example", "/"));
+        assertFalse(guard.isBlocked("192.0.2.99", "example.com", "/about"));
+    }
+
+    @Test
+    public void queryStringsDoNotDodgeTheUriRate() {
+        FloodGuard guard = uriGuard();
+        for (int i = 0; i < 11; i++) {
+            guard.recordRequest("192.0.2." + i, "example.com", "/search?q=" + i);
+        }
+
+        assertTrue(guard.isBlocked("192.0.2.99", "EXAMPLE.com", "/search?q=new"));
+    }
+
+    @Test
+    public void zeroRateDisablesEscalation() {
+        FloodGuard guard = guard(60);
+        for (int i = 0; i < 100; i++) {
+            guard.recordRequest("192.0.2." + i, "example.com", "/search");
+        }
+
+        assertFalse(guard.isBlocked(null, "example.com", "/search"));
+        assertEquals(0, guard.getBlockedCount(Dimension.URI));
+        assertEquals(100, guard.getTopK(Dimension.URI).get(0).count());
+    }
+
+    @Test
+    public void escalationExpiresAfterCooldown() {
+        FloodGuard guard = guard(0);
+        for (int i = 0; i < 11; i++) {
+            guard.recordRequest("192.0.2.1", "example.com", "/");
+        }
+
+        assertFalse(guard.isBlocked("192.0.2.1", "example.com", "/"));
+        assertEquals(0, guard.getBlockedCount(Dimension.CLIENT_IP));
+    }
+
+    @Test
+    public void rotateDropsExpiredEscalationsAndCounts() {
+        FloodGuard guard = guard(0);
+        for (int i = 0; i < 11; i++) {
+            guard.recordRequest("192.0.2.1", "example.com", "/");
+        }
+        assertEquals(1, guard.getBlockedCount(Dimension.CLIENT_IP));
+
+        guard.rotate();
+
+        assertEquals(0, guard.getBlockedCount(Dimension.CLIENT_IP));
+        assertTrue(guard.getTopK(Dimension.CLIENT_IP).isEmpty());
+    }
+
+    @Test
+    public void disabledGuardNeverBlocks() {
+        FloodGuard guard = new FloodGuard(false, 1, 60, 1, 1, 1, address -> false);
+        for (int i = 0; i < 10; i++) {
+            guard.recordRequest("192.0.2.1", "example.com", "/");
+            guard.recordRejected("unknown.example");
+        }
+
+        assertFalse(guard.isBlocked("192.0.2.1", "unknown.example", "/"));
+        assertTrue(guard.getTopK(Dimension.CLIENT_IP).isEmpty());
+    }
+}
@@ -0,0 +1,130 @@
+package eu.netward.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.lang.reflect.Proxy;
+
+import org.junit.Test;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.net.SocketAddress;
+
+public class HeaderForwarderTest {
+
+    private static final String CLIENT_IP = "192.0.2.10";
+
+    @Test
+    public void hopByHopHeadersAreDropped() {
+        MultiMap target = forward(false,
+            "Connection", "keep-alive",
+            "Keep-Alive", "timeout=5",
+            "Proxy-Authorization", "Basic c2VjcmV0",
+            "TE", "trailers",
+            "Transfer-Encoding", "chunked",
+            "Upgrade", "websocket",
+            ParentRing.TIER_HEADER, "10.0.0.1:8080",
+            "Accept", "text/html");
+
+        for (String name : new String[] {"Connection", "Keep-Alive", "Proxy-Authorization", "TE",
+                "Transfer-Encoding", "Upgrade", ParentRing.TIER_HEADER}) {
+            assertFalse(name, target.contains(name));
+        }
+        assertEquals("text/html", target.get("Accept"));
+    }
+
+    @Test
+    public void headersListedInConnectionAreDropped() {
+        MultiMap target = forward(false,
+            "Connection", "close, X-Internal-Token",
+            "x-internal-token", "secret",
+            "X-Other", "kept");
+
+        assertFalse(target.contains("X-Internal-Token"));
+        assertEquals("kept", target.get("X-Other"));
+    }
+
+    @Test
+    public void hostIsRewritten() {
+        MultiMap target = forward(false, "Host", "origin.internal");
+
+        assertEquals("example.com", target.get("Host"));
+        assertEquals(1, target.getAll("Host").size());
+    }
+
+    @Test
+    public void clientIsAppendedToForwardedFor() {
+        assertEquals(CLIENT_IP, forward(false).get("X-Forwarded-For"));
+        assertEquals("198.51.100.1, " + CLIENT_IP, forward(false, "X-Forwarded-For", "198.51.100.1").get("X-Forwarded-For"));
+    }
+
+    @Test
+    public void clientValuesAreOverwrittenForUnverifiedHops() {
+        MultiMap target = forward(false,
+            "X-Real-IP", "203.0.113.66",
+            "X-Forwarded-Proto", "https");
+
+        assertEquals(CLIENT_IP, target.get("X-Real-IP"));
+        assertEquals("http", target.get("X-Forwarded-Proto"));
+        assertEquals(1, target.getAll("X-Real-IP").size());
+    }
+
+    @Test
+    public void verifiedTierHopKeepsTheOriginalClient() {
+        MultiMap target = forward(true,
+            "X-Real-IP", "203.0.113.66",
+            "X-Forwarded-Proto", "https");
+
+        assertEquals("203.0.113.66", target.get("X-Real-IP"));
+        assertEquals("https", target.get("X-Forwarded-Proto"));
+    }
+
+    @Test
+    public void verifiedTierHopWithoutClientValuesGetsItsOwn() {
+        MultiMap target = forward(true);
+
+        assertEquals(CLIENT_IP, target.get("X-Real-IP"));
+        assertEquals("http", target.get("X-Forwarded-Proto"));
+    }
+
+    @Test
+    public void responseHopByHopHeadersAreDropped() {
+        MultiMap source = MultiMap.caseInsensitiveMultiMap()
+            .add("Connection", "X-Backend")
+            .add("X-Backend", "app-3")
+            .add("Transfer-Encoding", "chunked")
+            .add("Content-Type", "text/html");
+        MultiMap target = MultiMap.caseInsensitiveMultiMap();
+
+        HeaderForwarder.forwardResponseHeaders(source, target);
+
+        assertEquals(1, target.size());
+        assertEquals("text/html", target.get("Content-Type"));
+    }
+
+    private static MultiMap forward(boolean verifiedTierHop, String... namesAndValues) {
+        MultiMap headers = MultiMap.caseInsensitiveMultiMap();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            headers.add(namesAndValues[i], namesAndValues[i + 1]);
+        }
+
+        MultiMap target = MultiMap.caseInsensitiveMultiMap();
+        HeaderForwarder.forwardRequestHeaders(request(headers), target, "example.com", verifiedTierHop);
+        return target;
+    }
+
+    /**
+     * Plain HTTP request from {@link #CLIENT_IP} with the given headers; nothing else is used.
+     */
+    private static HttpServerRequest request(MultiMap headers) {
+        return (HttpServerRequest) Proxy.newProxyInstance(HttpServerRequest.class.getClassLoader(),
+            new Class<?>[] {HttpServerRequest.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "headers" -> headers;
+                case "remoteAddress" -> SocketAddress.inetSocketAddress(40000, CLIENT_IP);
+                case "scheme" -> "http";
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
@@ -0,0 +1,97 @@
+package eu.netward.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import eu.netward.proxy.ParentRing.Parent;
+
+public class ParentRingTest {
+
+    // IP literals so resolving the parent addresses never needs DNS
+    private static final String PARENTS = "10.0.0.1:8080,10.0.0.2:8080,10.0.0.3:8080";
+
+    @Test
+    public void ringWithoutParentsIsDisabled() {
+        ParentRing ring = new ParentRing("", "NONE", 30);
+
+        assertFalse(ring.isEnabled());
+        assertNull(ring.select("example.com:/"));
+        assertFalse(ring.isParentAddress("10.0.0.1"));
+    }
+
+    @Test
+    public void selectionIsStable() {
+        ParentRing ring = new ParentRing(PARENTS, "NONE", 30);
+
+        assertEquals(3, ring.getParents().size());
+        for (int i = 0; i < 100; i++) {
+            String key = "example.com:/asset-" + i;
+            assertSame(ring.select(key), ring.select(key));
+        }
+    }
+
+    @Test
+    public void keysOwnedBySelfGoToTheOrigin() {
+        ParentRing ring = new ParentRing(PARENTS, "10.0.0.1:8080", 30);
+
+        int owned = 0;
+        for (int i = 0; i < 300; i++) {
+            Parent parent = ring.select("example.com:/asset-" + i);
+            if (parent == null) {
+                owned++;
+            } else {
+                assertNotEquals("10.0.0.1:8080", parent.getId());
+            }
+        }
+        assertTrue(owned > 0 && owned < 300);
+    }
+
+    @Test
+    public void parentsMarkedDownAreSkipped() {
+        for (int i = 0; i < 50; i++) {
+            ParentRing ring = new ParentRing(PARENTS, "NONE", 30);
+            String key = "example.com:/asset-" + i;
+            Parent owner = ring.select(key);
+            ring.markDown(owner);
+
+            Parent fallback = ring.select(key);
+            assertNotNull(fallback);
+            assertNotEquals(owner.getId(), fallback.getId());
+        }
+    }
+
+    @Test
+    public void allParentsDownGoesToTheOrigin() {
+        ParentRing ring = new ParentRing(PARENTS, "NONE", 30);
+        for (Parent parent : ring.getParents()) {
+            ring.markDown(parent);
+        }
+
+        assertNull(ring.select("example.com:/"));
+    }
+
+    @Test
+    public void downParentsComeBackAfterTheirPenalty() {
+        ParentRing ring = new ParentRing(PARENTS, "NONE", 0);
+        Parent owner = ring.select("example.com:/");
+        ring.markDown(owner);
+
+        assertSame(owner, ring.select("example.com:/"));
+    }
+
+    @Test
+    public void onlyParentAddressesAreRecognised() {
+        ParentRing ring = new ParentRing(PARENTS, "NONE", 30);
+
+        assertTrue(ring.isParentAddress("10.0.0.2"));
+        assertFalse(ring.isParentAddress("10.0.0.9"));
+        assertFalse(ring.isParentAddress(null));
+    }
+}
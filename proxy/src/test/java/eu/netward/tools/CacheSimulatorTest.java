@@ -0,0 +1,109 @@
+package eu.netward.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import eu.netward.cache.CacheEntry;
+import eu.netward.cache.CachedHeaders;
+import eu.netward.tools.CacheSimulator.LinkedCache;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+
+public class CacheSimulatorTest {
+
+    // Entry overhead is 128 bytes, so this body makes an entry weigh exactly 1000
+    private static final int BODY = 1000 - 128;
+
+    private final long[] now = {0};
+
+    @Test
+    public void lruEvictsTheLeastRecentlyUsedEntry() {
+        LinkedCache cache = new LinkedCache(3000, true, () -> now[0]);
+        cache.put("a", entry(BODY));
+        cache.put("b", entry(BODY));
+        cache.put("c", entry(BODY));
+        cache.get("a");
+
+        cache.put("d", entry(BODY));
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertNotNull(cache.get("d"));
+    }
+
+    @Test
+    public void fifoEvictsTheOldestEntryDespiteHits() {
+        LinkedCache cache = new LinkedCache(3000, false, () -> now[0]);
+        cache.put("a", entry(BODY));
+        cache.put("b", entry(BODY));
+        cache.put("c", entry(BODY));
+        cache.get("a");
+
+        cache.put("d", entry(BODY));
+
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+    }
+
+    @Test
+    public void evictionFreesEnoughWeight() {
+        LinkedCache cache = new LinkedCache(3000, true, () -> now[0]);
+        cache.put("a", entry(BODY));
+        cache.put("b", entry(BODY));
+        cache.put("c", entry(BODY));
+
+        cache.put("large", entry(2000 - 128));
+
+        assertNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertNotNull(cache.get("large"));
+    }
+
+    @Test
+    public void replacingAnEntryReleasesItsWeight() {
+        LinkedCache cache = new LinkedCache(3000, true, () -> now[0]);
+        cache.put("a", entry(BODY));
+        cache.put("a", entry(2000 - 128));
+        cache.put("b", entry(BODY));
+
+        assertEquals(2000 - 128, cache.get("a").getBodyLength());
+        assertNotNull(cache.get("b"));
+    }
+
+    @Test
+    public void oversizedEntriesAreNotAdmitted() {
+        LinkedCache cache = new LinkedCache(3000, true, () -> now[0]);
+        cache.put("a", entry(BODY));
+
+        cache.put("huge", entry(5000));
+
+        assertNull(cache.get("huge"));
+        assertNotNull(cache.get("a"));
+    }
+
+    @Test
+    public void staleEntriesAreDropped() {
+        LinkedCache cache = new LinkedCache(3000, true, () -> now[0]);
+        cache.put("a", entry(BODY));
+
+        now[0] = 11_000;
+
+        assertNull(cache.get("a"));
+        // Its weight was released as well
+        cache.put("b", entry(2000 - 128));
+        cache.put("c", entry(BODY));
+        assertNotNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    // 10 s TTL, cached at the current clock
+    private CacheEntry entry(int bodyLength) {
+        return new CacheEntry(200, CachedHeaders.from(MultiMap.caseInsensitiveMultiMap()), Buffer.buffer(),
+            bodyLength, 10, now[0]);
+    }
+}
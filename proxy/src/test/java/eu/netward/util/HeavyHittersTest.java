@@ -0,0 +1,75 @@
+package eu.netward.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class HeavyHittersTest {
+
+    @Test
+    public void countsAreNeverUnderestimated() {
+        HeavyHitters hitters = new HeavyHitters(4, 1024, 8);
+        for (int i = 0; i < 100; i++) {
+            hitters.add("hot");
+        }
+        for (int i = 0; i < 5000; i++) {
+            hitters.add("key-" + i);
+        }
+
+        assertTrue(hitters.estimate("hot") >= 100);
+        assertTrue(hitters.estimate("key-42") >= 1);
+    }
+
+    @Test
+    public void topKKeepsTheHeaviestKeys() {
+        HeavyHitters hitters = new HeavyHitters(4, 4096, 3);
+        for (int i = 0; i < 1000; i++) {
+            hitters.add("key-" + i);
+            if (i % 2 == 0) {
+                hitters.add("heavy");
+            }
+            if (i % 5 == 0) {
+                hitters.add("warm");
+            }
+        }
+
+        List<HeavyHitters.Entry> top = hitters.topK();
+        assertEquals(3, top.size());
+        assertEquals("heavy", top.get(0).key());
+        assertEquals("warm", top.get(1).key());
+        assertTrue(top.get(0).count() >= 500);
+        assertTrue(top.get(1).count() >= 200);
+    }
+
+    @Test
+    public void keysSeenLateStillEnterTheTable() {
+        HeavyHitters hitters = new HeavyHitters(4, 4096, 2);
+        hitters.add("a");
+        hitters.add("b");
+        for (int i = 0; i < 50; i++) {
+            hitters.add("late");
+        }
+
+        assertEquals("late", hitters.topK().get(0).key());
+    }
+
+    @Test
+    public void rotateStartsANewWindow() {
+        HeavyHitters hitters = new HeavyHitters(4, 1024, 4);
+        for (int i = 0; i < 10; i++) {
+            hitters.add("flood");
+        }
+
+        hitters.rotate();
+
+        assertEquals(0, hitters.estimate("flood"));
+        assertTrue(hitters.topK().isEmpty());
+        assertFalse(hitters.lastWindowTopK().isEmpty());
+        assertEquals("flood", hitters.lastWindowTopK().get(0).key());
+        assertEquals(1, hitters.add("flood"));
+    }
+}